@@ -0,0 +1,78 @@
+package com.studymate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Folder import (addFolderRecursively): a nested source library is imported into an
+// empty study directory, including hashing for duplicate detection.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ImportBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int files;
+
+    private Path source;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        source = SyntheticLibrary.create(files, false);
+    }
+
+    @Setup(Level.Iteration)
+    public void createTarget() throws IOException {
+        target = Files.createTempDirectory("studymate-bench-import-");
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteTarget() throws IOException {
+        SyntheticLibrary.delete(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSource() throws IOException {
+        SyntheticLibrary.delete(source);
+    }
+
+    @Benchmark
+    public int importFolder() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<ImportEngine.ImportSummary> summary = new AtomicReference<>();
+        List<File> sources = Collections.singletonList(source.toFile());
+        new ImportEngine(target, new ContentStore(target)).start(sources, file -> false,
+            new ImportEngine.Listener() {
+                @Override
+                public void onBatch(List<StudyMaterial> materials) {
+                }
+
+                @Override
+                public void onProgress(int completed, int discovered, long bytesCopied) {
+                }
+
+                @Override
+                public void onFailure(File file, IOException error) {
+                }
+
+                @Override
+                public void onComplete(ImportEngine.ImportSummary result) {
+                    summary.set(result);
+                    done.countDown();
+                }
+            });
+        done.await();
+        return summary.get().imported;
+    }
+}
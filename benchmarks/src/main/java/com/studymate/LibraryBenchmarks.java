@@ -0,0 +1,132 @@
+package com.studymate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+// Read-only library operations against a synthetic library of `files` files:
+// scanning and loading (loadExistingMaterials), the columnar table behind the list
+// and materializing the visible rows, search and category filtering (filterMaterials),
+// the pre-sorted index, category stats (updateStats) and the Auto Organize dry run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LibraryBenchmarks {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int files;
+
+    private Path root;
+    private LibraryCatalog loaded;
+    private List<StudyMaterial> materials;
+    private MaterialTable table;
+    private int[] rows;
+
+    @Setup(Level.Trial)
+    public void createLibrary() throws IOException {
+        root = SyntheticLibrary.create(files, false);
+        LibraryCatalog catalog = new LibraryCatalog(root);
+        catalog.reconcile();
+        catalog.save();
+    }
+
+    // Fresh materials each iteration so cached display strings from a previous
+    // iteration do not flatter the results
+    @Setup(Level.Iteration)
+    public void loadMaterials() {
+        loaded = new LibraryCatalog(root);
+        loaded.load();
+        materials = loaded.toMaterials();
+        table = toTable(materials);
+        rows = new int[table.rowCount()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+    }
+
+    private static MaterialTable toTable(List<StudyMaterial> materials) {
+        MaterialTable table = new MaterialTable();
+        for (StudyMaterial material : materials) {
+            table.add(material);
+        }
+        return table;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLibrary() throws IOException {
+        SyntheticLibrary.delete(root);
+    }
+
+    // First start: no catalog, every file is walked and stat'ed
+    @Benchmark
+    public int scanWithoutCatalog() throws IOException {
+        return new LibraryCatalog(root).reconcile().added.size();
+    }
+
+    // Later starts: materials come from the catalog, then the disk is reconciled
+    @Benchmark
+    public int loadFromCatalog() throws IOException {
+        LibraryCatalog catalog = new LibraryCatalog(root);
+        catalog.load();
+        int loaded = catalog.toMaterials().size();
+        return loaded + catalog.reconcile().added.size();
+    }
+
+    // Copying the loaded materials into the columnar table behind the list
+    @Benchmark
+    public int buildTable() {
+        return toTable(materials).size();
+    }
+
+    @Benchmark
+    public int filterByNameAndCategory() {
+        MaterialSearch.Result result = MaterialSearch.search(table, "lecture", null, null, loaded);
+        IntPredicate filter = MaterialSearch.filter(table, Category.PDF, result);
+        int matches = 0;
+        for (int row : rows) {
+            if (filter.test(row)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int sortByName() {
+        SortedMaterialIndex index = new SortedMaterialIndex(table);
+        index.addAll(rows, rows.length);
+        return index.select(SortedMaterialIndex.Order.NAME, null).length;
+    }
+
+    // What the list does for the rows on screen: materialize one page of a sorted view
+    @Benchmark
+    public int materializeVisiblePage() {
+        PagedMaterialList list = new PagedMaterialList(table);
+        list.setRows(rows);
+        int length = 0;
+        for (int i = rows.length / 2; i < Math.min(rows.length, rows.length / 2 + 40); i++) {
+            length += list.get(i).getDetails().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public long categoryStats() {
+        LibraryStats stats = new LibraryStats();
+        for (StudyMaterial material : materials) {
+            stats.add(material);
+        }
+        return stats.getTotalBytes();
+    }
+
+    @Benchmark
+    public int organizeDryRun() {
+        return OrganizePlan.compute(materials, root).getMoves().size();
+    }
+}
@@ -0,0 +1,43 @@
+package com.studymate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Auto Organize (organizeByType) end to end: a flat library is generated before each
+// iteration and the journaled transaction moves every file into its category folder.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class OrganizeBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int files;
+
+    private Path root;
+    private List<StudyMaterial> materials;
+
+    @Setup(Level.Iteration)
+    public void createLibrary() throws IOException {
+        root = SyntheticLibrary.create(files, true);
+        LibraryCatalog catalog = new LibraryCatalog(root);
+        catalog.reconcile();
+        materials = catalog.toMaterials();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteLibrary() throws IOException {
+        SyntheticLibrary.delete(root);
+    }
+
+    @Benchmark
+    public int organize() throws IOException {
+        OrganizePlan plan = OrganizePlan.compute(materials, root);
+        return new OrganizeTransaction(plan, new TransferEngine()).execute(null).size();
+    }
+}
@@ -0,0 +1,77 @@
+package com.studymate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Study records: the cost of a save on the calling thread (what the FX thread pays),
+// a save followed by waiting until it is durable, and opening a store with history.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class RecordStoreBenchmark {
+    @Param({"10000", "100000"})
+    public int history;
+
+    private Path root;
+    private StudyRecordStore store;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void openStore() throws IOException {
+        root = Files.createTempDirectory("studymate-records-");
+        store = new StudyRecordStore(root);
+        store.open();
+        for (int i = 0; i < history; i++) {
+            store.save(note(i));
+        }
+        store.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeStore() throws IOException {
+        store.close();
+        SyntheticLibrary.delete(root);
+    }
+
+    @Benchmark
+    public long saveNote() {
+        return store.save(note(counter++));
+    }
+
+    @Benchmark
+    public long saveSession() {
+        StudySession session = new StudySession("lecture " + counter++ + ".pdf");
+        session.endSession();
+        return store.save(session);
+    }
+
+    @Benchmark
+    public long saveAndFlush() throws IOException {
+        long id = store.save(note(counter++));
+        store.flush();
+        return id;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int reopen() throws IOException {
+        store.flush();
+        StudyRecordStore reopened = new StudyRecordStore(root);
+        reopened.open();
+        int notes = reopened.notes().size();
+        reopened.close();
+        return notes;
+    }
+
+    private static StudyNote note(long i) {
+        return new StudyNote("Note " + i, "Summary of chapter " + i + " with the key formulas", "lecture " + i + ".pdf");
+    }
+}
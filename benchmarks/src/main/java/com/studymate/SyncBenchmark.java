@@ -0,0 +1,88 @@
+package com.studymate;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Sync to a LocalBlobStore: re-syncing after a small edit to one large PDF in an
+// already synced library (stats every file, chunks and hashes the edited one, uploads
+// the changed chunk), and the chunker's raw throughput on that file.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SyncBenchmark {
+    private static final int PDF_SIZE = 64 * 1024 * 1024;
+
+    @Param({"1000", "10000"})
+    public int files;
+
+    private Path root;
+    private Path bucket;
+    private Path pdf;
+    private LibraryCatalog catalog;
+    private byte[] content;
+    private int edits;
+
+    @Setup(Level.Trial)
+    public void createLibrary() throws IOException {
+        root = SyntheticLibrary.create(files, false);
+        bucket = Files.createTempDirectory("studymate-bench-bucket-");
+        content = new byte[PDF_SIZE];
+        new Random(42).nextBytes(content);
+        pdf = root.resolve("textbook.pdf");
+        Files.write(pdf, content);
+        catalog = new LibraryCatalog(root);
+        catalog.reconcile();
+        sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLibrary() throws IOException {
+        SyntheticLibrary.delete(root);
+        SyntheticLibrary.delete(bucket);
+    }
+
+    @Setup(Level.Invocation)
+    public void editPdf() throws IOException {
+        content[(edits++ * 7_919_993) % PDF_SIZE] ^= 1;
+        Files.write(pdf, content);
+    }
+
+    @Benchmark
+    public long resyncAfterEdit() throws IOException {
+        return sync().bytesUploaded.get();
+    }
+
+    @Benchmark
+    public int chunkPdf() throws IOException {
+        int[] chunks = new int[1];
+        ContentChunker.split(pdf, (data, length) -> chunks[0]++);
+        return chunks[0];
+    }
+
+    private SyncEngine.SyncSummary sync() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (LibraryCatalog.Entry entry : catalog.entries()) {
+            paths.add(root.resolve(entry.relativePath));
+        }
+        return new SyncEngine(root, new LocalBlobStore(bucket)).sync(paths, new SyncEngine.Listener() {
+            @Override
+            public void onProgress(int completed, int total, long bytesUploaded) {
+            }
+
+            @Override
+            public void onFailure(Path file, IOException error) {
+                throw new IllegalStateException(file + ": " + error.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Random;
+
+// Generates study libraries of a given size in a temp directory: a mix of the real
+// categories, realistic-looking names, and small files so a million of them fit on disk.
+final class SyntheticLibrary {
+    private static final String[] WORDS = {
+        "lecture", "notes", "chapter", "exam", "summary", "lab", "assignment", "slides",
+        "physics", "calculus", "biology", "history", "revision", "week", "tutorial", "draft"
+    };
+    private static final String[] EXTENSIONS = {
+        "pdf", "pdf", "txt", "docx", "png", "jpg", "rtf", "mp4", "zip", "pptx"
+    };
+    private static final int FILES_PER_FOLDER = 1000;
+    private static final int MAX_FILE_SIZE = 512;
+
+    private SyntheticLibrary() {
+    }
+
+    // Files are spread over subfolders of FILES_PER_FOLDER unless flat is set
+    static Path create(int fileCount, boolean flat) throws IOException {
+        Path root = Files.createTempDirectory("studymate-bench-");
+        fill(root, fileCount, flat);
+        return root;
+    }
+
+    static void fill(Path root, int fileCount, boolean flat) throws IOException {
+        Random random = new Random(42);
+        byte[] content = new byte[MAX_FILE_SIZE];
+        Path folder = root;
+        for (int i = 0; i < fileCount; i++) {
+            if (!flat && i % FILES_PER_FOLDER == 0) {
+                folder = Files.createDirectories(root.resolve(String.format("folder-%04d", i / FILES_PER_FOLDER)));
+            }
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                + " " + i + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            random.nextBytes(content);
+            Files.write(folder.resolve(name), Arrays.copyOf(content, random.nextInt(MAX_FILE_SIZE) + 1));
+        }
+    }
+
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
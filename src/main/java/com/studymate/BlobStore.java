@@ -0,0 +1,18 @@
+package com.studymate;
+
+import java.io.IOException;
+
+// Remote object storage as the sync engine sees it: whole objects under string keys
+// ("chunks/<sha-256>", "files/<relative path>"). Implementations must be thread-safe;
+// uploads run on several threads at once.
+interface BlobStore {
+    boolean exists(String key) throws IOException;
+
+    // Creates or replaces the object
+    void put(String key, byte[] data, int length) throws IOException;
+
+    // The object's bytes, or null if there is none
+    byte[] get(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,88 @@
+package com.studymate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Bookmarks by material id plus a ranking by priority (highest first), then by when
+// they were bookmarked (most recent first). The ranking holds immutable entries, so a
+// priority change takes the old entry out and puts a new one in: O(log n), and top-k is
+// a walk over the first k entries.
+class BookmarkIndex {
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        int result = Integer.compare(b.priority, a.priority);
+        if (result == 0) {
+            result = b.bookmarked.compareTo(a.bookmarked);
+        }
+        return result != 0 ? result : Long.compare(a.materialId, b.materialId);
+    };
+
+    private final Map<Long, Entry> byMaterial = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>(RANKING);
+
+    // Adds a bookmark, replacing any bookmark for the same material
+    public synchronized void put(MaterialBookmark bookmark) {
+        Entry previous = byMaterial.remove(bookmark.getMaterialId());
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        Entry entry = new Entry(bookmark);
+        byMaterial.put(entry.materialId, entry);
+        ranking.add(entry);
+    }
+
+    // Re-ranks a bookmark after its priority changed
+    public synchronized void update(MaterialBookmark bookmark) {
+        Entry entry = byMaterial.get(bookmark.getMaterialId());
+        if (entry == null || entry.bookmark != bookmark) {
+            return;
+        }
+        if (entry.priority != bookmark.getPriority()) {
+            put(bookmark);
+        }
+    }
+
+    public synchronized MaterialBookmark remove(long materialId) {
+        Entry entry = byMaterial.remove(materialId);
+        if (entry == null) {
+            return null;
+        }
+        ranking.remove(entry);
+        return entry.bookmark;
+    }
+
+    public synchronized MaterialBookmark get(long materialId) {
+        Entry entry = byMaterial.get(materialId);
+        return entry != null ? entry.bookmark : null;
+    }
+
+    public synchronized int size() {
+        return byMaterial.size();
+    }
+
+    // The limit best-ranked bookmarks
+    public synchronized List<MaterialBookmark> top(int limit) {
+        List<MaterialBookmark> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (Entry entry : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(entry.bookmark);
+        }
+        return top;
+    }
+
+    // The sort key as it was when the bookmark was ranked
+    private static final class Entry {
+        final long materialId;
+        final int priority;
+        final LocalDateTime bookmarked;
+        final MaterialBookmark bookmark;
+
+        Entry(MaterialBookmark bookmark) {
+            this.materialId = bookmark.getMaterialId();
+            this.priority = bookmark.getPriority();
+            this.bookmarked = bookmark.getBookmarked();
+            this.bookmark = bookmark;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.studymate;
+
+// Material categories. The label doubles as the Auto Organize folder name and is what
+// the catalog and organize journal persist, so it must not change.
+enum Category {
+    PDF("PDF", "📄"),
+    IMAGES("Images", "🖼️"),
+    DOCUMENTS("Documents", "📝"),
+    VIDEOS("Videos", "🎬"),
+    OTHERS("Others", "📋");
+
+    private static final Category[] VALUES = values();
+
+    private final String label;
+    private final String icon;
+
+    Category(String label, String icon) {
+        this.label = label;
+        this.icon = icon;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getIcon() {
+        return icon;
+    }
+
+    // By extension only; TypeDetector also looks at the content
+    public static Category forFileName(String fileName) {
+        int lastDot = fileName.lastIndexOf('.');
+        String extension = lastDot > 0 ? fileName.substring(lastDot + 1).toLowerCase() : "";
+
+        switch (extension) {
+            case "pdf":
+                return PDF;
+            case "png":
+            case "jpg":
+            case "jpeg":
+            case "gif":
+            case "bmp":
+            case "webp":
+            case "tif":
+            case "tiff":
+            case "heic":
+                return IMAGES;
+            case "doc":
+            case "docx":
+            case "txt":
+            case "rtf":
+                return DOCUMENTS;
+            case "mp4":
+            case "avi":
+            case "mov":
+            case "wmv":
+            case "mkv":
+            case "webm":
+            case "m4v":
+            case "flv":
+            case "mpg":
+            case "mpeg":
+                return VIDEOS;
+            default:
+                return OTHERS;
+        }
+    }
+
+    // Null for labels that are not a category (e.g. the "All" filter)
+    public static Category fromLabel(String label) {
+        for (Category category : VALUES) {
+            if (category.label.equals(label)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
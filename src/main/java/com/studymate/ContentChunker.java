@@ -0,0 +1,97 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Content-defined chunking with a gear rolling hash (FastCDC-style normalized chunking).
+// Cut points depend only on the bytes around them, so an edit in the middle of a file
+// changes the chunks it touches and leaves the chunks before and after it identical:
+// a re-sync of an edited PDF uploads a few MB instead of the whole file.
+class ContentChunker {
+    static final int MIN_SIZE = 256 * 1024;
+    static final int AVERAGE_SIZE = 1024 * 1024;
+    static final int MAX_SIZE = 4 * 1024 * 1024;
+
+    // Harder to cut before the average size and easier after it, which narrows the
+    // spread of chunk sizes around the average
+    private static final long MASK_SMALL = mask(22);
+    private static final long MASK_LARGE = mask(18);
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: chunk boundaries must be the same on every machine and every run
+        Random random = new Random(0x5354554459L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    interface ChunkConsumer {
+        // data[0, length) is only valid during the call
+        void accept(byte[] data, int length) throws IOException;
+    }
+
+    // Reads the file once, handing each chunk to consumer in order
+    static void split(Path file, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[MAX_SIZE];
+        int filled = 0;
+        boolean eof = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                while (!eof && filled < buffer.length) {
+                    int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        filled += read;
+                    }
+                }
+                if (filled == 0) {
+                    return;
+                }
+                int cut = eof && filled <= MIN_SIZE ? filled : cutPoint(buffer, filled);
+                consumer.accept(buffer, cut);
+                System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+                filled -= cut;
+            }
+        }
+    }
+
+    // Length of the next chunk in data[0, length)
+    static int cutPoint(byte[] data, int length) {
+        if (length <= MIN_SIZE) {
+            return length;
+        }
+        int normal = Math.min(AVERAGE_SIZE, length);
+        int end = Math.min(MAX_SIZE, length);
+        long hash = 0;
+        int i = MIN_SIZE;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xFF];
+            if ((hash & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    // A mask with the given number of bits spread over the high half of the hash, where
+    // the gear hash has seen the most bytes
+    private static long mask(int bits) {
+        long mask = 0;
+        for (int b = 0; b < bits; b++) {
+            mask |= 1L << (63 - b * 32 / bits);
+        }
+        return mask;
+    }
+}
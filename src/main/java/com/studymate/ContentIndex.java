@@ -0,0 +1,360 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over the extracted text of study materials, ranked with BM25.
+// Documents are keyed by their path relative to the study directory and the index
+// is persisted next to the library catalog.
+class ContentIndex {
+    static final String INDEX_FILE = ".studymate-index";
+
+    private static final int MAGIC = 0x534D4958; // "SMIX"
+    private static final int VERSION = 1;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Path root;
+    private final Path indexFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Document table, indexed by doc id
+    private final List<String> docPaths = new ArrayList<>();
+    private final List<long[]> docStamps = new ArrayList<>(); // {size, modified}
+    private int[] docLengths = new int[256];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private long totalLength;
+    private boolean dirty;
+
+    ContentIndex(Path root) {
+        this.root = root;
+        this.indexFile = root.resolve(INDEX_FILE);
+    }
+
+    // True when the file is not indexed yet or changed since it was indexed
+    public boolean needsIndexing(String relativePath, long size, long modified) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIds.get(relativePath);
+            if (docId == null) {
+                return true;
+            }
+            long[] stamp = docStamps.get(docId);
+            return stamp[0] != size || stamp[1] != modified;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(String relativePath, long size, long modified, Map<String, Integer> termFrequencies) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(relativePath);
+
+            int docId = docPaths.size();
+            int length = 0;
+            for (Map.Entry<String, Integer> term : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new Postings()).add(docId, term.getValue());
+                length += term.getValue();
+            }
+            docPaths.add(relativePath);
+            docStamps.add(new long[] {size, modified});
+            if (docId >= docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, docLengths.length * 2);
+            }
+            docLengths[docId] = length;
+            docIds.put(relativePath, docId);
+            totalLength += length;
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves a document to a new path without re-extracting it
+    public void rename(String fromPath, String toPath) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.remove(fromPath);
+            if (docId != null) {
+                removeLocked(toPath);
+                docPaths.set(docId, toPath);
+                docIds.put(toPath, docId);
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String relativePath) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(relativePath);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String relativePath) {
+        Integer docId = docIds.remove(relativePath);
+        if (docId != null) {
+            deleted.set(docId);
+            totalLength -= docLengths[docId];
+            dirty = true;
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns up to limit paths (relative to the study directory), best match first
+    public List<String> search(String query, int limit) {
+        List<String> terms = TextTokenizer.tokens(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docIds.size();
+            if (liveDocs == 0) {
+                return Collections.emptyList();
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / liveDocs);
+            float[] scores = new float[docPaths.size()];
+            BitSet matched = new BitSet(docPaths.size());
+
+            for (String term : new LinkedHashSet<>(terms)) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int docId = list.docs[i];
+                    if (deleted.get(docId)) {
+                        continue;
+                    }
+                    int tf = list.freqs[i];
+                    double norm = K1 * (1 - B + B * docLengths[docId] / averageLength);
+                    scores[docId] += (float) (idf * (tf * (K1 + 1)) / (tf + norm));
+                    matched.set(docId);
+                }
+            }
+
+            // Keep only the best `limit` hits in a min-heap
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int docId = matched.nextSetBit(0); docId >= 0; docId = matched.nextSetBit(docId + 1)) {
+                top.add(docId);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            String[] results = new String[top.size()];
+            for (int i = results.length - 1; i >= 0; i--) {
+                results[i] = docPaths.get(top.poll());
+            }
+            return Arrays.asList(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean load() {
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+            if (!Files.exists(indexFile)) {
+                return false;
+            }
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return false;
+                }
+                int docCount = in.readInt();
+                docLengths = new int[Math.max(256, docCount)];
+                for (int docId = 0; docId < docCount; docId++) {
+                    String path = in.readUTF();
+                    docPaths.add(path);
+                    docStamps.add(new long[] {in.readLong(), in.readLong()});
+                    docLengths[docId] = in.readInt();
+                    totalLength += docLengths[docId];
+                    docIds.put(path, docId);
+                }
+                int termCount = in.readInt();
+                for (int t = 0; t < termCount; t++) {
+                    String term = in.readUTF();
+                    Postings list = new Postings();
+                    int size = in.readInt();
+                    int docId = 0;
+                    for (int i = 0; i < size; i++) {
+                        docId += readVarInt(in);
+                        list.add(docId, readVarInt(in));
+                    }
+                    postings.put(term, list);
+                }
+                return true;
+            } catch (IOException e) {
+                clearLocked();
+                return false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Writes a compacted copy of the index; deleted documents are dropped
+    public void save() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            compactLocked();
+
+            Path tempFile = root.resolve(INDEX_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docPaths.size());
+                for (int docId = 0; docId < docPaths.size(); docId++) {
+                    out.writeUTF(docPaths.get(docId));
+                    out.writeLong(docStamps.get(docId)[0]);
+                    out.writeLong(docStamps.get(docId)[1]);
+                    out.writeInt(docLengths[docId]);
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                    Postings list = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(list.size);
+                    int previous = 0;
+                    for (int i = 0; i < list.size; i++) {
+                        writeVarInt(out, list.docs[i] - previous);
+                        writeVarInt(out, list.freqs[i]);
+                        previous = list.docs[i];
+                    }
+                }
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactLocked() {
+        if (deleted.isEmpty()) {
+            return;
+        }
+        int[] remap = new int[docPaths.size()];
+        List<String> paths = new ArrayList<>(docIds.size());
+        List<long[]> stamps = new ArrayList<>(docIds.size());
+        int[] lengths = new int[Math.max(256, docIds.size())];
+        for (int docId = 0; docId < docPaths.size(); docId++) {
+            if (deleted.get(docId)) {
+                remap[docId] = -1;
+            } else {
+                remap[docId] = paths.size();
+                lengths[paths.size()] = docLengths[docId];
+                paths.add(docPaths.get(docId));
+                stamps.add(docStamps.get(docId));
+            }
+        }
+
+        Iterator<Postings> it = postings.values().iterator();
+        while (it.hasNext()) {
+            Postings list = it.next();
+            list.remap(remap);
+            if (list.size == 0) {
+                it.remove();
+            }
+        }
+        docPaths.clear();
+        docPaths.addAll(paths);
+        docStamps.clear();
+        docStamps.addAll(stamps);
+        docLengths = lengths;
+        deleted.clear();
+        docIds.clear();
+        for (int docId = 0; docId < docPaths.size(); docId++) {
+            docIds.put(docPaths.get(docId), docId);
+        }
+    }
+
+    private void clearLocked() {
+        docPaths.clear();
+        docStamps.clear();
+        docLengths = new int[256];
+        deleted.clear();
+        docIds.clear();
+        postings.clear();
+        totalLength = 0;
+        dirty = false;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Growable parallel arrays of doc ids (ascending) and term frequencies
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int docId, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = docId;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int docId = remap[docs[i]];
+                if (docId >= 0) {
+                    docs[kept] = docId;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+}
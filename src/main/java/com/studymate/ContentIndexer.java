@@ -0,0 +1,177 @@
+package com.studymate;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.rtf.RTFEditorKit;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Extracts text from PDFs, plain text and RTF files on a pool of background threads
+// and feeds it into the content index. Only new or changed files are re-extracted.
+class ContentIndexer {
+    private static final int MAX_TEXT_CHARS = 2_000_000;
+    private static final long SAVE_EVERY = 200;
+
+    private final Path root;
+    private final ContentIndex index;
+    private final ExecutorService extractors;
+    private final ExecutorService writer;
+    private final AtomicInteger unsaved = new AtomicInteger();
+
+    ContentIndexer(Path root, ContentIndex index) {
+        this.root = root;
+        this.index = index;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.extractors = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "content-extractor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "content-index-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean isIndexable(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".pdf") || name.endsWith(".txt") || name.endsWith(".rtf");
+    }
+
+    public void submit(Collection<StudyMaterial> materials) {
+        for (StudyMaterial material : materials) {
+            if (isIndexable(material.getFile())) {
+                extractors.execute(() -> indexFile(material.getFile().toPath()));
+            }
+        }
+    }
+
+    public void remove(Collection<File> files) {
+        writer.execute(() -> {
+            for (File file : files) {
+                index.remove(root.relativize(file.toPath()).toString());
+            }
+            saveIfNeeded(files.size());
+        });
+    }
+
+    public void rename(List<OrganizePlan.Move> moves) {
+        writer.execute(() -> {
+            for (OrganizePlan.Move move : moves) {
+                index.rename(root.relativize(move.source).toString(), root.relativize(move.target).toString());
+            }
+            saveIfNeeded(moves.size());
+        });
+    }
+
+    // Lets queued extractions finish, saves the index and stops; used by batch runs
+    public void awaitCompletion() throws InterruptedException {
+        extractors.shutdown();
+        extractors.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        writer.execute(this::save);
+        writer.shutdown();
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (writer.isShutdown()) {
+            return;
+        }
+        extractors.shutdownNow();
+        writer.execute(this::save);
+        writer.shutdown();
+    }
+
+    private void indexFile(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            String relativePath = root.relativize(path).toString();
+            long modified = attrs.lastModifiedTime().toMillis();
+            if (!index.needsIndexing(relativePath, attrs.size(), modified)) {
+                return;
+            }
+
+            Map<String, Integer> frequencies = TextTokenizer.termFrequencies(extractText(path));
+            writer.execute(() -> {
+                index.put(relativePath, attrs.size(), modified, frequencies);
+                saveIfNeeded(1);
+            });
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or corrupt document; it simply stays out of content search
+            Metrics.global().error("index", path + ": " + e);
+        }
+    }
+
+    private void saveIfNeeded(int changes) {
+        if (unsaved.addAndGet(changes) >= SAVE_EVERY) {
+            save();
+        }
+    }
+
+    private void save() {
+        unsaved.set(0);
+        try {
+            index.save();
+        } catch (IOException e) {
+            // Index will be rebuilt from the files on the next start
+        }
+    }
+
+    static String extractText(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".pdf")) {
+            try (PDDocument document = PDDocument.load(path.toFile())) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                String text = stripper.getText(document);
+                return text.length() > MAX_TEXT_CHARS ? text.substring(0, MAX_TEXT_CHARS) : text;
+            }
+        } else if (name.endsWith(".rtf")) {
+            RTFEditorKit kit = new RTFEditorKit();
+            Document document = kit.createDefaultDocument();
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                kit.read(in, document, 0);
+                return document.getText(0, Math.min(document.getLength(), MAX_TEXT_CHARS));
+            } catch (BadLocationException e) {
+                throw new IOException(e);
+            }
+        } else {
+            return readPlainText(path);
+        }
+    }
+
+    private static String readPlainText(Path path) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long size = Math.min(Files.size(path), MAX_TEXT_CHARS);
+        byte[] bytes = new byte[(int) size];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            CharBuffer chars = decoder.decode(ByteBuffer.wrap(bytes, 0, read));
+            return chars.toString();
+        }
+    }
+}
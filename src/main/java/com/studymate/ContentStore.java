@@ -0,0 +1,364 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// Content-addressed view of the study directory used to deduplicate imports.
+// Files are grouped by size first; only when sizes collide are the first and last
+// blocks hashed, and only when those match is the whole file hashed (SHA-256).
+// Computed hashes are persisted so they are never calculated twice for a file.
+class ContentStore {
+    static final String HASH_FILE = ".studymate-hashes";
+
+    private static final int MAGIC = 0x534D4853; // "SMHS"
+    private static final int VERSION = 1;
+    private static final int PARTIAL_BLOCK = 64 * 1024;
+    private static final int READ_BUFFER = 1024 * 1024;
+
+    private final Path root;
+    private final Path hashFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Long, List<Entry>> bySize = new HashMap<>();
+    private boolean dirty;
+
+    ContentStore(Path root) {
+        this.root = root;
+        this.hashFile = root.resolve(HASH_FILE);
+    }
+
+    public void register(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            register(file, attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            remove(file);
+        }
+    }
+
+    public synchronized void register(Path file, long size, long modified) {
+        String relativePath = root.relativize(file).toString();
+        Entry existing = entries.get(relativePath);
+        if (existing != null) {
+            if (existing.size == size && existing.modified == modified) {
+                return;
+            }
+            removeEntry(existing);
+        }
+        Entry entry = new Entry(relativePath, size, modified);
+        entries.put(relativePath, entry);
+        bySize.computeIfAbsent(size, s -> new ArrayList<>(1)).add(entry);
+    }
+
+    public synchronized void rename(Path from, Path to) {
+        Entry entry = entries.get(root.relativize(from).toString());
+        if (entry != null) {
+            removeEntry(entry);
+            Entry renamed = new Entry(root.relativize(to).toString(), entry.size, entry.modified);
+            renamed.partial = entry.partial;
+            renamed.full = entry.full;
+            entries.put(renamed.relativePath, renamed);
+            bySize.computeIfAbsent(renamed.size, s -> new ArrayList<>(1)).add(renamed);
+        }
+    }
+
+    public synchronized void remove(Path file) {
+        Entry entry = entries.get(root.relativize(file).toString());
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        entries.remove(entry.relativePath);
+        List<Entry> sameSize = bySize.get(entry.size);
+        if (sameSize != null) {
+            sameSize.remove(entry);
+            if (sameSize.isEmpty()) {
+                bySize.remove(entry.size);
+            }
+        }
+        dirty = true;
+    }
+
+    // Returns a stored file with exactly the same content as source, or null
+    public Path findDuplicate(Path source) throws IOException {
+        long size = Files.size(source);
+        List<Entry> candidates;
+        synchronized (this) {
+            List<Entry> sameSize = bySize.get(size);
+            if (sameSize == null) {
+                return null; // Unique size: no hashing needed at all
+            }
+            candidates = new ArrayList<>(sameSize);
+        }
+
+        byte[] sourcePartial = partialHash(source, size);
+        byte[] sourceFull = null;
+        for (Entry candidate : candidates) {
+            Path candidatePath = root.resolve(candidate.relativePath);
+            if (!candidate.isCurrent(candidatePath)) {
+                continue;
+            }
+            if (!Arrays.equals(sourcePartial, candidate.partialHash(candidatePath))) {
+                continue;
+            }
+            // Files no larger than the sampled blocks are fully covered by the partial hash
+            if (size <= 2L * PARTIAL_BLOCK) {
+                return candidatePath;
+            }
+            if (sourceFull == null) {
+                sourceFull = fullHash(source);
+            }
+            if (Arrays.equals(sourceFull, candidate.fullHash(candidatePath))) {
+                return candidatePath;
+            }
+        }
+        return null;
+    }
+
+    // Compares two files that are not (necessarily) in the store
+    public static boolean sameContent(Path a, Path b) throws IOException {
+        long size = Files.size(a);
+        if (size != Files.size(b) || !Arrays.equals(partialHash(a, size), partialHash(b, size))) {
+            return false;
+        }
+        return size <= 2L * PARTIAL_BLOCK || Arrays.equals(fullHash(a), fullHash(b));
+    }
+
+    // Stores a duplicate as a hard link to the existing file. Returns false where the file
+    // system cannot link them, and the caller copies instead: a symbolic link would dangle
+    // once the existing file is organized or deleted.
+    public static boolean storeAsLink(Path target, Path existing) {
+        try {
+            Files.createLink(target, existing);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+    }
+
+    // Groups of stored files with identical content, each sorted by path. Only files that
+    // share a size are hashed, and full hashes only where the partial hashes agree.
+    public List<List<Path>> duplicateGroups() throws IOException {
+        List<List<Entry>> sameSizeGroups = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Long, List<Entry>> group : bySize.entrySet()) {
+                if (group.getKey() > 0 && group.getValue().size() > 1) {
+                    sameSizeGroups.add(new ArrayList<>(group.getValue()));
+                }
+            }
+        }
+
+        List<List<Path>> duplicates = new ArrayList<>();
+        for (List<Entry> sameSize : sameSizeGroups) {
+            Map<ByteBuffer, List<Entry>> byPartial = new HashMap<>();
+            for (Entry entry : sameSize) {
+                Path path = root.resolve(entry.relativePath);
+                if (entry.isCurrent(path)) {
+                    byPartial.computeIfAbsent(ByteBuffer.wrap(entry.partialHash(path)), h -> new ArrayList<>()).add(entry);
+                }
+            }
+            for (List<Entry> samePartial : byPartial.values()) {
+                if (samePartial.size() < 2) {
+                    continue;
+                }
+                if (samePartial.get(0).size <= 2L * PARTIAL_BLOCK) {
+                    duplicates.add(toSortedPaths(samePartial));
+                    continue;
+                }
+                Map<ByteBuffer, List<Entry>> byFull = new HashMap<>();
+                for (Entry entry : samePartial) {
+                    Path path = root.resolve(entry.relativePath);
+                    byFull.computeIfAbsent(ByteBuffer.wrap(entry.fullHash(path)), h -> new ArrayList<>()).add(entry);
+                }
+                for (List<Entry> sameFull : byFull.values()) {
+                    if (sameFull.size() > 1) {
+                        duplicates.add(toSortedPaths(sameFull));
+                    }
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    private List<Path> toSortedPaths(List<Entry> group) {
+        List<Path> paths = new ArrayList<>(group.size());
+        for (Entry entry : group) {
+            paths.add(root.resolve(entry.relativePath));
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    public synchronized void load() {
+        entries.clear();
+        bySize.clear();
+        dirty = false;
+        if (!Files.exists(hashFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(hashFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong());
+                entry.partial = readHash(in);
+                entry.full = readHash(in);
+                entries.put(entry.relativePath, entry);
+                bySize.computeIfAbsent(entry.size, s -> new ArrayList<>(1)).add(entry);
+            }
+        } catch (IOException e) {
+            entries.clear();
+            bySize.clear();
+        }
+    }
+
+    // Only entries with at least one computed hash are worth persisting
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        List<Entry> hashed = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.partial != null) {
+                hashed.add(entry);
+            }
+        }
+
+        Path tempFile = root.resolve(HASH_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hashed.size());
+            for (Entry entry : hashed) {
+                out.writeUTF(entry.relativePath);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                writeHash(out, entry.partial);
+                writeHash(out, entry.full);
+            }
+        }
+        Files.move(tempFile, hashFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static byte[] readHash(DataInputStream in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 0) {
+            return null;
+        }
+        byte[] hash = new byte[length];
+        in.readFully(hash);
+        return hash;
+    }
+
+    private static void writeHash(DataOutputStream out, byte[] hash) throws IOException {
+        if (hash == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(hash.length);
+            out.write(hash);
+        }
+    }
+
+    // Hashes the first and last block plus the size
+    static byte[] partialHash(Path file, long size) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(PARTIAL_BLOCK);
+            readBlock(channel, buffer, 0, digest);
+            if (size > PARTIAL_BLOCK) {
+                readBlock(channel, buffer, Math.max(PARTIAL_BLOCK, size - PARTIAL_BLOCK), digest);
+            }
+        }
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+        return digest.digest();
+    }
+
+    static byte[] fullHash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void readBlock(FileChannel channel, ByteBuffer buffer, long position,
+                                  MessageDigest digest) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        digest.update(buffer);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private final class Entry {
+        final String relativePath;
+        final long size;
+        final long modified;
+        volatile byte[] partial;
+        volatile byte[] full;
+
+        Entry(String relativePath, long size, long modified) {
+            this.relativePath = relativePath;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        boolean isCurrent(Path path) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return attrs.size() == size && attrs.lastModifiedTime().toMillis() == modified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        byte[] partialHash(Path path) throws IOException {
+            if (partial == null) {
+                partial = ContentStore.partialHash(path, size);
+                markDirty();
+            }
+            return partial;
+        }
+
+        byte[] fullHash(Path path) throws IOException {
+            if (full == null) {
+                full = ContentStore.fullHash(path);
+                markDirty();
+            }
+            return full;
+        }
+    }
+
+    private synchronized void markDirty() {
+        dirty = true;
+    }
+}
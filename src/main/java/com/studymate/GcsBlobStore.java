@@ -0,0 +1,78 @@
+package com.studymate;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.storage.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// BlobStore on a Google Cloud Storage bucket. Firebase Storage buckets are plain GCS
+// buckets ("<project>.appspot.com"), so this serves both. Keys are stored under an
+// optional prefix so several libraries can share one bucket.
+class GcsBlobStore implements BlobStore {
+    private final Storage storage;
+    private final String bucket;
+    private final String prefix;
+
+    GcsBlobStore(Storage storage, String bucket, String prefix) {
+        this.storage = storage;
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    // credentials may be null to use the application default credentials
+    static GcsBlobStore connect(String bucket, String prefix, Path credentials) throws IOException {
+        StorageOptions.Builder options = StorageOptions.newBuilder();
+        if (credentials != null) {
+            try (InputStream in = Files.newInputStream(credentials)) {
+                options.setCredentials(GoogleCredentials.fromStream(in));
+            }
+        }
+        return new GcsBlobStore(options.build().getService(), bucket, prefix);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            return storage.get(blobId(key), Storage.BlobGetOption.fields(Storage.BlobField.NAME)) != null;
+        } catch (StorageException e) {
+            throw new IOException("Cannot check gs://" + bucket + "/" + prefix + key, e);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] data, int length) throws IOException {
+        byte[] content = length == data.length ? data : Arrays.copyOf(data, length);
+        try {
+            storage.create(BlobInfo.newBuilder(blobId(key)).build(), content);
+        } catch (StorageException e) {
+            throw new IOException("Cannot upload gs://" + bucket + "/" + prefix + key, e);
+        }
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try {
+            Blob blob = storage.get(blobId(key));
+            return blob != null ? blob.getContent() : null;
+        } catch (StorageException e) {
+            throw new IOException("Cannot download gs://" + bucket + "/" + prefix + key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            storage.delete(blobId(key));
+        } catch (StorageException e) {
+            throw new IOException("Cannot delete gs://" + bucket + "/" + prefix + key, e);
+        }
+    }
+
+    private BlobId blobId(String key) {
+        return BlobId.of(bucket, prefix + key);
+    }
+}
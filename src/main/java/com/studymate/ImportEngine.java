@@ -0,0 +1,294 @@
+package com.studymate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+// Copies files and folders into the study directory on a bounded worker pool.
+// Imported materials are handed to the listener in batches so the UI can publish
+// them with a single update instead of one per file. Each file's import is timed
+// in Metrics ("import.file"), and failures are recorded there too.
+class ImportEngine {
+    private static final int BATCH_SIZE = 250;
+    private static final long PUBLISH_INTERVAL_MS = 200;
+    private static final Metrics.Timer FILE_TIME = Metrics.global().timer("import.file");
+
+    private final Path targetDirectory;
+    private final ContentStore contentStore;
+    private final TransferEngine transferEngine = new TransferEngine();
+    private final LongSupplier newId;
+    private final int workerCount;
+
+    ImportEngine(Path targetDirectory, ContentStore contentStore) {
+        this(targetDirectory, contentStore, () -> 0);
+    }
+
+    // newId hands out catalog ids (see LibraryCatalog.newId()), so the materials passed to
+    // the listener already carry their stable id
+    ImportEngine(Path targetDirectory, ContentStore contentStore, LongSupplier newId) {
+        this(targetDirectory, contentStore, newId, Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors())));
+    }
+
+    ImportEngine(Path targetDirectory, ContentStore contentStore, LongSupplier newId, int workerCount) {
+        this.targetDirectory = targetDirectory;
+        this.contentStore = contentStore;
+        this.newId = newId;
+        this.workerCount = workerCount;
+    }
+
+    // Listener callbacks are invoked from background threads
+    interface Listener {
+        void onBatch(List<StudyMaterial> materials);
+        void onProgress(int completed, int discovered, long bytesCopied);
+        void onFailure(File file, IOException error);
+        void onComplete(ImportSummary summary);
+    }
+
+    // isKnown tells whether a file is already in the library; it is called from the
+    // import threads
+    public ImportTask start(List<File> sources, Predicate<File> isKnown, Listener listener) {
+        ImportTask task = new ImportTask(sources, isKnown, listener);
+        Thread coordinator = new Thread(task::run, "import-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return task;
+    }
+
+    final class ImportTask {
+        private final List<File> sources;
+        private final Predicate<File> isKnown;
+        private final Listener listener;
+        private final Set<Path> claimedTargets = ConcurrentHashMap.newKeySet();
+        private final ConcurrentLinkedQueue<StudyMaterial> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicInteger discovered = new AtomicInteger();
+        private final AtomicInteger imported = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger linked = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong bytesCopied = new AtomicLong();
+        private volatile ThreadPoolExecutor workers;
+
+        private ImportTask(List<File> sources, Predicate<File> isKnown, Listener listener) {
+            this.sources = new ArrayList<>(sources);
+            this.isKnown = isKnown;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        private void run() {
+            long started = System.nanoTime();
+            // Bounded queue with caller-runs so a huge folder cannot queue millions of tasks
+            workers = new ThreadPoolExecutor(workerCount, workerCount, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerCount * 64), r -> {
+                    Thread thread = new Thread(r, "import-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+            ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "import-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            publisher.scheduleWithFixedDelay(this::publish, PUBLISH_INTERVAL_MS, PUBLISH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+            try {
+                for (File source : sources) {
+                    if (cancelled.get()) {
+                        break;
+                    }
+                    if (source.isDirectory()) {
+                        walk(source.toPath());
+                    } else {
+                        submit(source.toPath());
+                    }
+                }
+            } finally {
+                workers.shutdown();
+                try {
+                    while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                        // keep waiting; cancellation makes the remaining tasks return quickly
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                publisher.shutdownNow();
+                publish();
+                listener.onComplete(new ImportSummary(imported.get(), skipped.get(), linked.get(), failed.get(),
+                    bytesCopied.get(), System.nanoTime() - started, cancelled.get()));
+            }
+        }
+
+        private void walk(Path folder) {
+            try {
+                Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        return cancelled.get() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (cancelled.get()) {
+                            return FileVisitResult.TERMINATE;
+                        }
+                        if (attrs.isRegularFile()) {
+                            submit(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        failed.incrementAndGet();
+                        Metrics.global().error("import", file + ": " + e.getMessage());
+                        listener.onFailure(file.toFile(), e);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                Metrics.global().error("import", folder + ": " + e.getMessage());
+                listener.onFailure(folder.toFile(), e);
+            }
+        }
+
+        private void submit(Path source) {
+            discovered.incrementAndGet();
+            workers.execute(() -> importFile(source));
+        }
+
+        private void importFile(Path source) {
+            if (cancelled.get()) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            long started = System.nanoTime();
+            try {
+                Path targetPath = claimTarget(source);
+                if (targetPath == null) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+
+                if (!Files.exists(targetPath)) {
+                    // Identical content already in the library is linked instead of copied
+                    Path duplicate = contentStore != null ? contentStore.findDuplicate(source) : null;
+                    if (duplicate != null && ContentStore.storeAsLink(targetPath, duplicate)) {
+                        linked.incrementAndGet();
+                    } else {
+                        transferEngine.copy(source, targetPath);
+                        bytesCopied.addAndGet(Files.size(source));
+                    }
+                    if (contentStore != null) {
+                        contentStore.register(targetPath);
+                    }
+                }
+                BasicFileAttributes attrs = Files.readAttributes(targetPath, BasicFileAttributes.class);
+                pending.add(new StudyMaterial(newId.getAsLong(), targetPath.toFile(), attrs.size(),
+                    TypeDetector.standard().detect(targetPath, attrs), System.currentTimeMillis()));
+                imported.incrementAndGet();
+                FILE_TIME.since(started);
+                if (pending.size() >= BATCH_SIZE) {
+                    publish();
+                }
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                Metrics.global().error("import", source + ": " + e.getMessage());
+                listener.onFailure(source.toFile(), e);
+            }
+        }
+
+        // Picks the target file name for a source. A file with the same name and the
+        // same content is not imported again (null); a different file with the same
+        // name gets a numbered name such as "notes (2).pdf".
+        private Path claimTarget(Path source) throws IOException {
+            String fileName = source.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+            String extension = dot > 0 ? fileName.substring(dot) : "";
+
+            for (int attempt = 1; ; attempt++) {
+                Path targetPath = targetDirectory.resolve(attempt == 1 ? fileName
+                    : base + " (" + attempt + ")" + extension);
+                if (!claimedTargets.add(targetPath)) {
+                    continue; // Another source in this import took the name
+                }
+                if (!Files.exists(targetPath)) {
+                    return targetPath;
+                }
+                if (ContentStore.sameContent(source, targetPath)) {
+                    return isKnown.test(targetPath.toFile()) ? null : targetPath;
+                }
+            }
+        }
+
+        private synchronized void publish() {
+            List<StudyMaterial> batch = new ArrayList<>();
+            StudyMaterial material;
+            while ((material = pending.poll()) != null) {
+                batch.add(material);
+            }
+            if (!batch.isEmpty()) {
+                listener.onBatch(batch);
+            }
+            listener.onProgress(imported.get() + skipped.get() + failed.get(), discovered.get(),
+                bytesCopied.get());
+        }
+    }
+
+    static final class ImportSummary {
+        final int imported;
+        final int skipped;
+        final int linked;
+        final int failed;
+        final long bytes;
+        final long elapsedNanos;
+        final boolean cancelled;
+
+        ImportSummary(int imported, int skipped, int linked, int failed, long bytes, long elapsedNanos,
+                      boolean cancelled) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.linked = linked;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.cancelled = cancelled;
+        }
+
+        double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported / (elapsedNanos / 1e9);
+        }
+
+        double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d files (%d linked duplicates, %d skipped, %d failed) • %.1f files/s • %.1f MB/s",
+                cancelled ? "Cancelled after" : "Imported", imported, linked, skipped, failed,
+                filesPerSecond(), megabytesPerSecond());
+        }
+    }
+}
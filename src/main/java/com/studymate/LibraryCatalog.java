@@ -0,0 +1,450 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+// Persistent catalog of the study directory, stored as a compact binary file
+// inside the directory itself so startup does not have to walk the tree.
+//
+// Every material has a stable id. Ids are random 63-bit numbers rather than a counter,
+// so an id that notes or sessions still refer to is never handed out again, even if the
+// catalog was not saved before a crash. Moves re-key the path map in place and keep the
+// id; files moved outside the app are recognized by their file key (inode), or by name,
+// size and modification time where the file system has no file keys.
+class LibraryCatalog {
+    static final String CATALOG_FILE = ".studymate-catalog";
+
+    private static final int MAGIC = 0x534D4331; // "SMC1"
+    private static final int VERSION = 2; // 2 added ids and file keys
+
+    private final Path root;
+    private final Path catalogFile;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private boolean dirty;
+
+    LibraryCatalog(Path root) {
+        this.root = root;
+        this.catalogFile = root.resolve(CATALOG_FILE);
+    }
+
+    // Reads the catalog file; a missing or unreadable catalog simply yields an
+    // empty catalog that the next reconcile() will rebuild.
+    public synchronized boolean load() {
+        entries.clear();
+        byId.clear();
+        dirty = false;
+        if (!Files.exists(catalogFile)) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(catalogFile), 1 << 16))) {
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = version >= 2 ? in.readLong() : 0;
+                String relativePath = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String label = in.readUTF();
+                Category category = Category.fromLabel(label);
+                if (category == null) {
+                    category = Category.forFileName(relativePath);
+                }
+                long dateAdded = in.readLong();
+                String fileKey = version >= 2 ? in.readUTF() : "";
+                if (id == 0) {
+                    id = newIdLocked();
+                    dirty = true;
+                }
+                putLocked(new Entry(id, relativePath, size, modified, category, dateAdded, fileKey));
+            }
+            return true;
+        } catch (IOException e) {
+            entries.clear();
+            byId.clear();
+            return false;
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty && Files.exists(catalogFile)) {
+            return;
+        }
+
+        Path tempFile = root.resolve(CATALOG_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeLong(entry.id);
+                out.writeUTF(entry.relativePath);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeUTF(entry.category.getLabel());
+                out.writeLong(entry.dateAdded);
+                out.writeUTF(entry.fileKey);
+            }
+        }
+        Files.move(tempFile, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    public synchronized List<StudyMaterial> toMaterials() {
+        List<StudyMaterial> materials = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            materials.add(entry.toMaterial(root));
+        }
+        return materials;
+    }
+
+    public synchronized StudyMaterial get(String relativePath) {
+        Entry entry = entries.get(relativePath);
+        return entry != null ? entry.toMaterial(root) : null;
+    }
+
+    public synchronized StudyMaterial get(long id) {
+        Entry entry = byId.get(id);
+        return entry != null ? entry.toMaterial(root) : null;
+    }
+
+    // Id of the material at a library-relative path, or 0
+    public synchronized long idOf(String relativePath) {
+        Entry entry = entries.get(relativePath);
+        return entry != null ? entry.id : 0;
+    }
+
+    // Current library-relative path of a material, or null once it left the library
+    public synchronized String pathOf(long id) {
+        Entry entry = byId.get(id);
+        return entry != null ? entry.relativePath : null;
+    }
+
+    // An id for a material that is about to be added, e.g. by an import
+    public synchronized long newId() {
+        return newIdLocked();
+    }
+
+    private long newIdLocked() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        } while (id == 0 || byId.containsKey(id));
+        return id;
+    }
+
+    // Records a material that was just added to the library. Returns the material with
+    // its id, assigning one if it has none yet.
+    public synchronized StudyMaterial put(StudyMaterial material) {
+        Path path = material.getFile().toPath();
+        long modified;
+        String fileKey;
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            modified = attrs.lastModifiedTime().toMillis();
+            fileKey = fileKey(attrs);
+        } catch (IOException e) {
+            modified = 0L;
+            fileKey = "";
+        }
+        if (material.getId() == 0) {
+            material = material.withId(newIdLocked());
+        }
+        putLocked(new Entry(material.getId(), relativize(path), material.getSize(), modified,
+            material.getCategory(), material.getDateAddedMillis(), fileKey));
+        dirty = true;
+        return material;
+    }
+
+    // Renames entries in place after Auto Organize, keeping their id and metadata: one
+    // map update per file, and nothing that refers to the id has to change
+    public synchronized void applyMoves(List<OrganizePlan.Move> moves) {
+        for (OrganizePlan.Move move : moves) {
+            Entry entry = entries.remove(relativize(move.source));
+            if (entry != null) {
+                putLocked(entry.movedTo(relativize(move.target)));
+                dirty = true;
+            }
+        }
+    }
+
+    public synchronized void remove(Path path) {
+        Entry entry = entries.remove(relativize(path));
+        if (entry != null) {
+            byId.remove(entry.id);
+            dirty = true;
+        }
+    }
+
+    private void putLocked(Entry entry) {
+        Entry replaced = entries.put(entry.relativePath, entry);
+        if (replaced != null && replaced.id != entry.id) {
+            byId.remove(replaced.id);
+        }
+        byId.put(entry.id, entry);
+    }
+
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Compares the catalog against the file system and applies only the differences.
+    // Files that disappeared and reappeared elsewhere with the same file key (or failing
+    // that the same name, size and modification time) are treated as moves and keep
+    // their id and date added. The walk runs on a ParallelScanner. Entries below a folder
+    // that could not be listed are left as they are, since their files were not seen.
+    public Changes reconcile() throws IOException {
+        Map<String, DiskFile> onDisk = new HashMap<>();
+        ParallelScanner.ScanSummary scan = collectFiles(root, knownPaths(), onDisk);
+        List<String> unreadable = directoryPrefixes(scan.unreadable);
+        Changes changes = diff(onDisk, entry -> !startsWithAny(entry.relativePath, unreadable));
+        changes.scan = scan;
+        return changes;
+    }
+
+    // Incremental variant of reconcile() used by the file watcher: only the given
+    // paths (files or deleted directories) and subtrees are compared with the disk.
+    public Changes refresh(Collection<Path> paths, Collection<Path> subtrees) throws IOException {
+        Map<String, DiskFile> onDisk = new HashMap<>();
+        Set<String> exact = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> unreadable = new ArrayList<>();
+        Set<String> known = knownPaths();
+
+        for (Path subtree : subtrees) {
+            if (Files.isDirectory(subtree)) {
+                unreadable.addAll(directoryPrefixes(collectFiles(subtree, known, onDisk).unreadable));
+            }
+            prefixes.add(directoryPrefix(subtree));
+        }
+        for (Path path : paths) {
+            if (isIgnored(path)) {
+                continue;
+            }
+            String relativePath = relativize(path);
+            exact.add(relativePath);
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    onDisk.put(relativePath, new DiskFile(attrs,
+                        known.contains(relativePath) ? null : TypeDetector.standard().detect(path, attrs)));
+                }
+            } catch (NoSuchFileException e) {
+                // Deleted; if it was a directory everything below it is gone too
+                prefixes.add(directoryPrefix(path));
+            }
+        }
+
+        return diff(onDisk, entry ->
+            (exact.contains(entry.relativePath) || startsWithAny(entry.relativePath, prefixes))
+                && !startsWithAny(entry.relativePath, unreadable));
+    }
+
+    private List<String> directoryPrefixes(List<Path> directories) {
+        List<String> prefixes = new ArrayList<>(directories.size());
+        for (Path directory : directories) {
+            prefixes.add(directoryPrefix(directory));
+        }
+        return prefixes;
+    }
+
+    private static boolean startsWithAny(String relativePath, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (relativePath.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Files that are not in known (the catalogued paths) are categorized on the walker
+    // threads, so that diff() reads no files while it holds the lock
+    private ParallelScanner.ScanSummary collectFiles(Path directory, Set<String> known,
+                                                     Map<String, DiskFile> onDisk) throws IOException {
+        return new ParallelScanner().scan(directory, LibraryCatalog::isIgnored,
+            (path, attrs) -> known.contains(relativize(path)) ? null : TypeDetector.standard().detect(path, attrs),
+            (path, attrs, category) -> onDisk.put(relativize(path), new DiskFile(attrs, category)));
+    }
+
+    private synchronized Set<String> knownPaths() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    // Entries matching scope but absent from onDisk are removed; everything in onDisk
+    // is added or updated.
+    private synchronized Changes diff(Map<String, DiskFile> onDisk, Predicate<Entry> scope) {
+        Changes changes = new Changes();
+        Map<String, Entry> removedByKey = new HashMap<>();
+        Map<String, Entry> removedByIdentity = new HashMap<>();
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (!onDisk.containsKey(entry.relativePath) && scope.test(entry)) {
+                it.remove();
+                byId.remove(entry.id);
+                changes.removed.add(root.resolve(entry.relativePath).toFile());
+                if (!entry.fileKey.isEmpty()) {
+                    removedByKey.put(entry.fileKey, entry);
+                }
+                removedByIdentity.put(entry.identity(), entry);
+            }
+        }
+
+        for (Map.Entry<String, DiskFile> file : onDisk.entrySet()) {
+            String relativePath = file.getKey();
+            BasicFileAttributes attrs = file.getValue().attrs;
+            long size = attrs.size();
+            long modified = attrs.lastModifiedTime().toMillis();
+            String fileKey = fileKey(attrs);
+            Entry existing = entries.get(relativePath);
+
+            if (existing == null) {
+                // A removed entry with the same file key, or failing that the same name,
+                // size and time, is the same material moved: it keeps its id
+                String name = root.resolve(relativePath).getFileName().toString();
+                Entry moved = fileKey.isEmpty() ? null : removedByKey.remove(fileKey);
+                if (moved == null) {
+                    moved = removedByIdentity.remove(name + '\0' + size + '\0' + modified);
+                } else {
+                    removedByIdentity.remove(moved.identity());
+                }
+                if (moved != null && byId.containsKey(moved.id)) {
+                    moved = null; // Copied rather than moved; the original is still catalogued
+                }
+                long id = moved != null ? moved.id : newIdLocked();
+                long dateAdded = moved != null ? moved.dateAdded : attrs.creationTime().toMillis();
+                // A file removed from the catalog since the walk began has no detected
+                // category; its name decides rather than reading it under the lock
+                Category category = moved != null ? moved.category
+                    : file.getValue().category != null ? file.getValue().category
+                    : Category.forFileName(name);
+                Entry entry = new Entry(id, relativePath, size, modified, category, dateAdded, fileKey);
+                putLocked(entry);
+                changes.added.add(entry.toMaterial(root));
+            } else if (existing.size != size || existing.modified != modified) {
+                Entry entry = new Entry(existing.id, relativePath, size, modified, existing.category,
+                    existing.dateAdded, fileKey);
+                putLocked(entry);
+                changes.updated.add(entry.toMaterial(root));
+            } else if (!existing.fileKey.equals(fileKey)) {
+                // Catalogued before file keys were recorded
+                putLocked(new Entry(existing.id, relativePath, size, modified, existing.category,
+                    existing.dateAdded, fileKey));
+                dirty = true;
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            dirty = true;
+        }
+        return changes;
+    }
+
+    private String directoryPrefix(Path directory) {
+        return directory.equals(root) ? "" : relativize(directory) + File.separator;
+    }
+
+    static boolean isIgnored(Path path) {
+        String name = path.getFileName().toString();
+        // Skip the library's own data files and files that an import is still copying in
+        return name.startsWith(".studymate-") || name.endsWith(TransferEngine.PARTIAL_SUFFIX);
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path).toString();
+    }
+
+    // The file system's identity for the file (device and inode on Unix), or "" if it has none
+    private static String fileKey(BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return key != null ? key.toString() : "";
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    static final class Entry {
+        final long id;
+        final String relativePath;
+        final long size;
+        final long modified;
+        final Category category;
+        final long dateAdded;
+        final String fileKey;
+
+        Entry(long id, String relativePath, long size, long modified, Category category, long dateAdded,
+              String fileKey) {
+            this.id = id;
+            this.relativePath = relativePath;
+            this.size = size;
+            this.modified = modified;
+            this.category = category;
+            this.dateAdded = dateAdded;
+            this.fileKey = fileKey;
+        }
+
+        Entry movedTo(String newPath) {
+            return new Entry(id, newPath, size, modified, category, dateAdded, fileKey);
+        }
+
+        String identity() {
+            int slash = relativePath.lastIndexOf(File.separatorChar);
+            return relativePath.substring(slash + 1) + '\0' + size + '\0' + modified;
+        }
+
+        StudyMaterial toMaterial(Path root) {
+            return new StudyMaterial(id, root.resolve(relativePath).toFile(), size, category, dateAdded);
+        }
+    }
+
+    // A file found on disk, with its detected category if it was not catalogued yet
+    private static final class DiskFile {
+        final BasicFileAttributes attrs;
+        final Category category;
+
+        DiskFile(BasicFileAttributes attrs, Category category) {
+            this.attrs = attrs;
+            this.category = category;
+        }
+    }
+
+    // Result of a reconcile pass
+    static final class Changes {
+        final List<StudyMaterial> added = new ArrayList<>();
+        final List<StudyMaterial> updated = new ArrayList<>();
+        final List<File> removed = new ArrayList<>();
+        // Set by reconcile(): how the full walk of the library went
+        ParallelScanner.ScanSummary scan;
+
+        boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.studymate;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.prefs.Preferences;
+
+// Command line front end for batch work on a study directory (e.g. nightly indexing
+// from cron). Never touches JavaFX. Every command prints one JSON object to stdout;
+// errors print {"error": ...} to stderr and exit with a non-zero status.
+class LibraryCli {
+    private static final String USAGE = String.join("\n",
+        "Usage: studymate <command> [options]",
+        "",
+        "Commands:",
+        "  scan                              reconcile the catalog with the disk and index new content",
+        "  import <file-or-folder>...        import files and folders into the library",
+        "  search <query> [--category C] [--limit N]",
+        "  organize [--dry-run]              move materials into their category folders",
+        "  dedupe [--link]                   report duplicate files, or replace them with hard links",
+        "  stats                             counts and sizes per category",
+        "  study-time [--days N]             minutes studied per category over the last N days (default 90)",
+        "  top-studied [--limit N]           materials with the most study time (default 20)",
+        "  notes <query> [--limit N]         search note titles and contents; \"quote\" phrases",
+        "  bookmarks [--limit N]             bookmarks by priority, then most recent (default 20)",
+        "  sync (--bucket B [--prefix P] [--credentials FILE] | --to DIR) [--kbps N]",
+        "                                    upload new and changed materials to a Cloud Storage or",
+        "                                    Firebase bucket (or a local folder); resumes if interrupted",
+        "",
+        "Options:",
+        "  --dir <path>                      study directory (default: the one the app uses)",
+        "  --metrics                         add operation counts, timings and errors to the output",
+        "  --metrics-port <port>             serve them at http://127.0.0.1:<port>/metrics while running");
+
+    private final PrintStream out;
+
+    LibraryCli(PrintStream out) {
+        this.out = out;
+    }
+
+    static boolean isCommand(String arg) {
+        switch (arg) {
+            case "scan":
+            case "import":
+            case "search":
+            case "organize":
+            case "dedupe":
+            case "stats":
+            case "study-time":
+            case "top-studied":
+            case "notes":
+            case "bookmarks":
+            case "sync":
+            case "help":
+            case "--help":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean readsRecordsOnly(String command) {
+        switch (command) {
+            case "study-time":
+            case "top-studied":
+            case "notes":
+            case "bookmarks":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Returns the process exit status
+    public int run(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (arguments.isEmpty() || arguments.get(0).equals("help") || arguments.get(0).equals("--help")) {
+            out.println(USAGE);
+            return arguments.isEmpty() ? 2 : 0;
+        }
+
+        try {
+            Path directory = takeOption(arguments, "--dir");
+            boolean metrics = takeFlag(arguments, "--metrics");
+            String metricsPort = takeOption(arguments, "--metrics-port", null);
+            if (arguments.isEmpty()) {
+                throw new IllegalArgumentException("Missing command");
+            }
+            String command = arguments.remove(0);
+            // Serves the metrics while the command runs; nothing else refers to it
+            MetricsServer server = metricsPort != null
+                ? new MetricsServer(Metrics.global(), parsePositive("--metrics-port", metricsPort)) : null;
+            try (LibraryService library = new LibraryService(directory != null ? directory : defaultDirectory())) {
+                library.loadCatalog();
+                if (readsRecordsOnly(command)) {
+                    library.openRecords();
+                }
+                if (!readsRecordsOnly(command) && !command.equals("stats") && !command.equals("sync")) {
+                    library.loadIndexes();
+                }
+                JSONObject result = execute(command, arguments, library);
+                if (metrics) {
+                    result.put("metrics", Metrics.global().snapshot());
+                }
+                out.println(result.toString(2));
+            } finally {
+                if (server != null) {
+                    server.close();
+                }
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(new JSONObject().put("error", e.getMessage()).put("usage", USAGE).toString(2));
+            return 2;
+        } catch (IOException | RuntimeException e) {
+            System.err.println(new JSONObject().put("error", String.valueOf(e.getMessage())).toString(2));
+            return 1;
+        }
+    }
+
+    private JSONObject execute(String command, List<String> arguments, LibraryService library) throws IOException {
+        switch (command) {
+            case "scan":
+                return scan(library);
+            case "import":
+                return importFiles(library, arguments);
+            case "search":
+                return search(library, arguments);
+            case "organize":
+                return organize(library, takeFlag(arguments, "--dry-run"));
+            case "dedupe":
+                return dedupe(library, takeFlag(arguments, "--link"));
+            case "stats":
+                return stats(library);
+            case "study-time":
+                return studyTime(library, takeOption(arguments, "--days", "90"));
+            case "top-studied":
+                return topStudied(library, parsePositive("--limit", takeOption(arguments, "--limit", "20")));
+            case "notes":
+                return searchNotes(library, arguments);
+            case "bookmarks":
+                return bookmarks(library, parsePositive("--limit", takeOption(arguments, "--limit", "20")));
+            case "sync":
+                return sync(library, arguments);
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    private JSONObject scan(LibraryService library) throws IOException {
+        long started = System.nanoTime();
+        LibraryCatalog.Changes changes = library.scan();
+        library.indexPending();
+        library.awaitIndexing();
+        return new JSONObject()
+            .put("command", "scan")
+            .put("materials", library.getCatalog().size())
+            .put("indexedDocuments", library.getContentIndex().size())
+            .put("added", changes.added.size())
+            .put("updated", changes.updated.size())
+            .put("removed", changes.removed.size())
+            .put("scannedFiles", changes.scan.files)
+            .put("scannedFolders", changes.scan.directories)
+            .put("unreadableFolders", changes.scan.errors)
+            .put("scanFilesPerSecond", Math.round(changes.scan.filesPerSecond()))
+            .put("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private JSONObject importFiles(LibraryService library, List<String> arguments) throws IOException {
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("import needs at least one file or folder");
+        }
+        List<File> sources = new ArrayList<>();
+        for (String argument : arguments) {
+            sources.add(new File(argument));
+        }
+        List<String> failures = new ArrayList<>();
+        ImportEngine.ImportSummary summary = library.importFiles(sources, failures);
+        library.awaitIndexing();
+        return new JSONObject()
+            .put("command", "import")
+            .put("imported", summary.imported)
+            .put("linked", summary.linked)
+            .put("skipped", summary.skipped)
+            .put("failed", summary.failed)
+            .put("bytes", summary.bytes)
+            .put("filesPerSecond", summary.filesPerSecond())
+            .put("megabytesPerSecond", summary.megabytesPerSecond())
+            .put("failures", new JSONArray(failures));
+    }
+
+    private JSONObject search(LibraryService library, List<String> arguments) {
+        String category = takeOption(arguments, "--category", null);
+        String limit = takeOption(arguments, "--limit", "50");
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("search needs a query");
+        }
+        Category filter = null;
+        if (category != null) {
+            filter = Category.fromLabel(category);
+            if (filter == null) {
+                throw new IllegalArgumentException("Unknown category: " + category);
+            }
+        }
+
+        String query = String.join(" ", arguments);
+        JSONArray results = new JSONArray();
+        for (StudyMaterial material : library.search(query, filter, parsePositive("--limit", limit))) {
+            results.put(toJson(material));
+        }
+        return new JSONObject()
+            .put("command", "search")
+            .put("query", query)
+            .put("results", results);
+    }
+
+    private JSONObject organize(LibraryService library, boolean dryRun) throws IOException {
+        OrganizePlan plan = library.planOrganize();
+        JSONArray moves = new JSONArray();
+        for (OrganizePlan.Move move : plan.getMoves()) {
+            moves.put(new JSONObject()
+                .put("from", plan.getRoot().relativize(move.source).toString())
+                .put("to", plan.getRoot().relativize(move.target).toString())
+                .put("bytes", move.size));
+        }
+        JSONObject result = new JSONObject()
+            .put("command", "organize")
+            .put("dryRun", dryRun)
+            .put("files", plan.getMoves().size())
+            .put("bytes", plan.getTotalBytes())
+            .put("moves", moves);
+        if (!dryRun && !plan.isEmpty()) {
+            long started = System.nanoTime();
+            library.organize(plan, new TransferEngine(), null);
+            result.put("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+        }
+        return result;
+    }
+
+    private JSONObject dedupe(LibraryService library, boolean link) throws IOException {
+        List<List<Path>> groups = library.findDuplicates();
+        JSONArray duplicates = new JSONArray();
+        long reclaimable = 0;
+        for (List<Path> group : groups) {
+            JSONArray files = new JSONArray();
+            for (Path path : group) {
+                files.put(library.getRoot().relativize(path).toString());
+            }
+            long size = group.get(0).toFile().length();
+            reclaimable += size * (group.size() - 1);
+            duplicates.put(new JSONObject().put("bytes", size).put("files", files));
+        }
+        JSONObject result = new JSONObject()
+            .put("command", "dedupe")
+            .put("groups", duplicates)
+            .put("reclaimableBytes", reclaimable);
+        if (link) {
+            result.put("freedBytes", library.linkDuplicates(groups));
+        }
+        return result;
+    }
+
+    private JSONObject stats(LibraryService library) {
+        LibraryStats stats = library.stats();
+        JSONObject categories = new JSONObject();
+        for (Category category : Category.values()) {
+            categories.put(category.getLabel(), new JSONObject()
+                .put("count", stats.getCount(category))
+                .put("bytes", stats.getBytes(category)));
+        }
+        return new JSONObject()
+            .put("command", "stats")
+            .put("materials", stats.getTotalCount())
+            .put("bytes", stats.getTotalBytes())
+            .put("categories", categories);
+    }
+
+    private JSONObject studyTime(LibraryService library, String days) {
+        int window = parsePositive("--days", days);
+        if (window > StudyAnalytics.DAY_HISTORY) {
+            throw new IllegalArgumentException("--days can be at most " + StudyAnalytics.DAY_HISTORY + ": " + days);
+        }
+        StudyAnalytics analytics = library.getAnalytics();
+        LocalDate today = LocalDate.now();
+        long[] minutes = analytics.minutesByCategory(today, window);
+        JSONObject categories = new JSONObject();
+        long total = 0;
+        for (Category category : Category.values()) {
+            categories.put(category.getLabel(), minutes[category.ordinal()]);
+            total += minutes[category.ordinal()];
+        }
+        return new JSONObject()
+            .put("command", "study-time")
+            .put("days", window)
+            .put("minutes", total)
+            .put("categories", categories)
+            .put("thisWeekMinutes", analytics.weekTotal(today))
+            .put("allTimeMinutes", analytics.getTotalMinutes())
+            .put("sessions", analytics.getSessionCount());
+    }
+
+    private JSONObject topStudied(LibraryService library, int limit) {
+        JSONArray results = new JSONArray();
+        for (StudyAnalytics.MaterialTime time : library.getAnalytics().topMaterials(limit)) {
+            results.put(new JSONObject()
+                .put("material", materialPath(library, time.getMaterialId(), time.getMaterial()))
+                .put("category", time.getCategory().getLabel())
+                .put("minutes", time.getMinutes())
+                .put("sessions", time.getSessions())
+                .put("lastStudied", LibraryCatalog.toEpochMillis(time.getLastStudied())));
+        }
+        return new JSONObject()
+            .put("command", "top-studied")
+            .put("results", results);
+    }
+
+    private JSONObject searchNotes(LibraryService library, List<String> arguments) {
+        int limit = parsePositive("--limit", takeOption(arguments, "--limit", "50"));
+        if (arguments.isEmpty()) {
+            throw new IllegalArgumentException("notes needs a query");
+        }
+
+        String query = String.join(" ", arguments);
+        JSONArray results = new JSONArray();
+        for (NoteIndex.Hit hit : library.searchNotes(query, limit)) {
+            StudyNote note = hit.getNote();
+            JSONObject result = new JSONObject()
+                .put("id", note.getId())
+                .put("title", note.getTitle())
+                .put("score", hit.getScore())
+                .put("lastModified", LibraryCatalog.toEpochMillis(note.getLastModified()));
+            StudyMaterial material = library.material(hit.getMaterialId());
+            if (material != null) {
+                result.put("material", toJson(material));
+            } else if (hit.getMaterial() != null) {
+                result.put("material", new JSONObject().put("path", hit.getMaterial()));
+            }
+            results.put(result);
+        }
+        return new JSONObject()
+            .put("command", "notes")
+            .put("query", query)
+            .put("results", results);
+    }
+
+    private JSONObject bookmarks(LibraryService library, int limit) {
+        JSONArray results = new JSONArray();
+        for (MaterialBookmark bookmark : library.topBookmarks(limit)) {
+            StudyMaterial material = library.material(bookmark.getMaterialId());
+            results.put(new JSONObject()
+                .put("path", materialPath(library, bookmark.getMaterialId(), bookmark.getMaterialPath()))
+                .put("name", bookmark.getCustomName())
+                .put("priority", bookmark.getPriority())
+                .put("stars", bookmark.getPriorityStars())
+                .put("notes", bookmark.getNotes())
+                .put("bookmarked", LibraryCatalog.toEpochMillis(bookmark.getBookmarked()))
+                .put("inLibrary", material != null));
+        }
+        return new JSONObject()
+            .put("command", "bookmarks")
+            .put("total", library.getBookmarks().size())
+            .put("results", results);
+    }
+
+    // Where a material is now, or the name it was recorded under once it left the library
+    private static String materialPath(LibraryService library, long materialId, String recorded) {
+        String path = library.getCatalog().pathOf(materialId);
+        return path != null ? path : recorded;
+    }
+
+    private JSONObject sync(LibraryService library, List<String> arguments) throws IOException {
+        String bucket = takeOption(arguments, "--bucket", null);
+        String prefix = takeOption(arguments, "--prefix", "");
+        Path credentials = takeOption(arguments, "--credentials");
+        Path directory = takeOption(arguments, "--to");
+        String kbps = takeOption(arguments, "--kbps", null);
+        if ((bucket == null) == (directory == null)) {
+            throw new IllegalArgumentException("sync needs either --bucket or --to");
+        }
+        long bytesPerSecond = kbps != null ? parsePositive("--kbps", kbps) * 1024L : 0;
+        BlobStore store = bucket != null
+            ? GcsBlobStore.connect(bucket, prefix, credentials)
+            : new LocalBlobStore(directory);
+
+        List<String> failures = new ArrayList<>();
+        SyncEngine.SyncSummary summary = library.sync(store, bytesPerSecond, new SyncEngine.Listener() {
+            @Override
+            public void onProgress(int completed, int total, long bytesUploaded) {
+            }
+
+            @Override
+            public void onFailure(Path file, IOException error) {
+                synchronized (failures) {
+                    failures.add(file + ": " + error.getMessage());
+                }
+            }
+        });
+        return new JSONObject()
+            .put("command", "sync")
+            .put("uploaded", summary.uploaded.get())
+            .put("unchanged", summary.unchanged.get())
+            .put("removed", summary.removed.get())
+            .put("failed", summary.failed.get())
+            .put("chunksUploaded", summary.chunksUploaded.get())
+            .put("chunksReused", summary.chunksReused.get())
+            .put("bytesUploaded", summary.bytesUploaded.get())
+            .put("megabytesPerSecond", summary.megabytesPerSecond())
+            .put("elapsedMillis", summary.elapsedNanos / 1_000_000)
+            .put("failures", new JSONArray(failures));
+    }
+
+    private static JSONObject toJson(StudyMaterial material) {
+        return new JSONObject()
+            .put("path", material.getFile().getPath())
+            .put("name", material.getName())
+            .put("category", material.getCategory().getLabel())
+            .put("bytes", material.getSize())
+            .put("dateAdded", material.getDateAddedMillis());
+    }
+
+    // Same preference the app stores the study directory under (see StudyMaterialsManager)
+    private static Path defaultDirectory() {
+        String fallback = Paths.get(System.getProperty("user.home"), "StudyMaterials").toString();
+        return Paths.get(Preferences.userRoot().node("/com/studymate").get("studyDirectory", fallback));
+    }
+
+    private static int parsePositive(String name, String value) {
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit > 0) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(name + " must be a positive number: " + value);
+    }
+
+    private static Path takeOption(List<String> arguments, String name) {
+        String value = takeOption(arguments, name, null);
+        return value != null ? Paths.get(value) : null;
+    }
+
+    private static String takeOption(List<String> arguments, String name, String defaultValue) {
+        int index = arguments.indexOf(name);
+        if (index < 0) {
+            return defaultValue;
+        }
+        if (index + 1 >= arguments.size()) {
+            throw new IllegalArgumentException(name + " needs a value");
+        }
+        arguments.remove(index);
+        return arguments.remove(index);
+    }
+
+    private static boolean takeFlag(List<String> arguments, String name) {
+        return arguments.remove(name);
+    }
+}
@@ -0,0 +1,492 @@
+package com.studymate;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Headless library engine for one study directory. Owns the catalog, the content hashes
+// and the content index and keeps them in step, so the JavaFX app and the command line
+// share the same logic. Methods block; callers decide which thread they run on. Each
+// operation is timed in Metrics as "library.<operation>", and its failures recorded.
+class LibraryService implements Closeable {
+    private final Path root;
+    private final LibraryCatalog catalog;
+    private final ContentStore contentStore;
+    private final ContentIndex contentIndex;
+    private final ContentIndexer contentIndexer;
+    private final StudyRecordStore records;
+    private final StudyAnalytics analytics;
+    private final NoteIndex noteIndex = new NoteIndex();
+    private final BookmarkIndex bookmarks = new BookmarkIndex();
+    private final LongSupplier materialCount;
+
+    LibraryService(Path root) {
+        this.root = root;
+        this.catalog = new LibraryCatalog(root);
+        this.contentStore = new ContentStore(root);
+        this.contentIndex = new ContentIndex(root);
+        this.contentIndexer = new ContentIndexer(root, contentIndex);
+        this.records = new StudyRecordStore(root);
+        this.analytics = new StudyAnalytics(id -> {
+            StudyMaterial material = catalog.get(id);
+            return material != null ? material.getCategory() : null;
+        });
+        this.materialCount = catalog::size;
+        Metrics.global().gauge("library.materials", materialCount);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public LibraryCatalog getCatalog() {
+        return catalog;
+    }
+
+    public ContentStore getContentStore() {
+        return contentStore;
+    }
+
+    public ContentIndex getContentIndex() {
+        return contentIndex;
+    }
+
+    // Sessions, notes and bookmarks; usable once openRecords() or readRecords() returned
+    public StudyRecordStore getRecords() {
+        return records;
+    }
+
+    // Study time rollups; filled by publishRecords() and kept current by endSession()
+    public StudyAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    // Full-text index over the notes; filled by publishRecords() and kept current on every edit
+    public NoteIndex getNoteIndex() {
+        return noteIndex;
+    }
+
+    // Bookmarks by material id, ranked by priority; filled by publishRecords()
+    public BookmarkIndex getBookmarks() {
+        return bookmarks;
+    }
+
+    // Fast part of opening: the catalogued materials, without touching the files
+    public List<StudyMaterial> loadCatalog() {
+        return timed("loadCatalog", () -> {
+            catalog.load();
+            return catalog.toMaterials();
+        });
+    }
+
+    // Reads the study records snapshot and log tail (a few MB at most, thanks to compaction).
+    // Needs the catalog loaded: records written before materials had ids are linked by path.
+    public void openRecords() throws IOException {
+        publishRecords(readRecords());
+    }
+
+    // The I/O half of openRecords(), for the library thread: replays the records and
+    // returns what was read, for publishRecords() to hand to the indexes
+    public StoredRecords readRecords() throws IOException {
+        return timedIO("openRecords", () -> {
+            records.open(catalog::idOf);
+            return new StoredRecords(records.sessions(), records.notes(), records.bookmarks());
+        });
+    }
+
+    // The in-memory half of openRecords(), for the thread that reads the indexes
+    public void publishRecords(StoredRecords stored) {
+        for (StudySession session : stored.sessions) {
+            analytics.record(session);
+        }
+        for (StudyNote note : stored.notes) {
+            track(note);
+        }
+        for (MaterialBookmark bookmark : stored.bookmarks) {
+            track(bookmark);
+        }
+    }
+
+    // Sessions saved after readRecords() are not in here; endSession() records those itself
+    static final class StoredRecords {
+        final List<StudySession> sessions;
+        final List<StudyNote> notes;
+        final List<MaterialBookmark> bookmarks;
+
+        StoredRecords(List<StudySession> sessions, List<StudyNote> notes, List<MaterialBookmark> bookmarks) {
+            this.sessions = sessions;
+            this.notes = notes;
+            this.bookmarks = bookmarks;
+        }
+    }
+
+    // Saves a new note; later setTitle/setContent calls save and re-index just that note
+    public void addNote(StudyNote note) {
+        if (note.getMaterialId() == 0 && note.getAssociatedMaterial() != null) {
+            note.setMaterialId(catalog.idOf(note.getAssociatedMaterial()));
+        }
+        records.save(note);
+        track(note);
+    }
+
+    public void deleteNote(StudyNote note) {
+        note.setOnChange(null);
+        noteIndex.remove(note);
+        records.delete(note);
+    }
+
+    private void track(StudyNote note) {
+        noteIndex.put(note);
+        note.setOnChange(changed -> {
+            records.save(changed);
+            noteIndex.put(changed);
+        });
+    }
+
+    // Saves a bookmark, replacing any bookmark for the same material; later edits are
+    // saved and re-ranked as they happen
+    public void addBookmark(MaterialBookmark bookmark) {
+        if (bookmark.getMaterialId() == 0) {
+            long materialId = catalog.idOf(bookmark.getMaterialPath());
+            if (materialId == 0) {
+                throw new IllegalArgumentException("Not in the library: " + bookmark.getMaterialPath());
+            }
+            bookmark.setMaterialId(materialId);
+        }
+        MaterialBookmark previous = bookmarks.get(bookmark.getMaterialId());
+        if (previous != null) {
+            previous.setOnChange(null);
+        }
+        records.save(bookmark);
+        track(bookmark);
+    }
+
+    public void deleteBookmark(MaterialBookmark bookmark) {
+        bookmark.setOnChange(null);
+        bookmarks.remove(bookmark.getMaterialId());
+        records.delete(bookmark);
+    }
+
+    private void track(MaterialBookmark bookmark) {
+        bookmarks.put(bookmark);
+        bookmark.setOnChange(changed -> {
+            records.save(changed);
+            bookmarks.update(changed);
+        });
+    }
+
+    // Highest priority first, then the most recently bookmarked
+    public List<MaterialBookmark> topBookmarks(int limit) {
+        return bookmarks.top(limit);
+    }
+
+    public List<NoteIndex.Hit> searchNotes(String query, int limit) {
+        return noteIndex.search(query, limit);
+    }
+
+    // The catalogued material at a library-relative path (e.g. a note's associated
+    // material), or null
+    public StudyMaterial material(String relativePath) {
+        return catalog.get(relativePath);
+    }
+
+    // The catalogued material with an id, wherever it is now, or null once it left the library
+    public StudyMaterial material(long id) {
+        return catalog.get(id);
+    }
+
+    // Sessions are named by the material's path relative to the library root and linked
+    // to it by id
+    public StudySession startSession(StudyMaterial material) {
+        String path = root.relativize(material.getFile().toPath()).toString();
+        StudySession session = new StudySession(path);
+        session.setMaterialId(material.getId() != 0 ? material.getId() : catalog.idOf(path));
+        return session;
+    }
+
+    // Saves a finished session; one the caller already ended keeps its end time. Needs
+    // the records open, so the app calls it on the library thread after readRecords().
+    public void endSession(StudySession session) {
+        if (session.getEndTime() == null) {
+            session.endSession();
+        }
+        records.save(session);
+        analytics.record(session);
+    }
+
+    // Slow part of opening: content hashes and the content index
+    public void loadIndexes() {
+        timed("loadIndexes", () -> {
+            contentStore.load();
+            for (LibraryCatalog.Entry entry : catalog.entries()) {
+                contentStore.register(root.resolve(entry.relativePath), entry.size, entry.modified);
+            }
+            contentIndex.load();
+            return null;
+        });
+    }
+
+    // Queues every catalogued file that is not indexed yet (or changed) for extraction
+    public void indexPending() {
+        contentIndexer.submit(catalog.toMaterials());
+    }
+
+    public List<StudyMaterial> materials() {
+        return catalog.toMaterials();
+    }
+
+    // Full reconcile of the catalog with the disk
+    public LibraryCatalog.Changes scan() throws IOException {
+        return timedIO("scan", () -> {
+            LibraryCatalog.Changes changes = catalog.reconcile();
+            applyChanges(changes);
+            return changes;
+        });
+    }
+
+    // Reconciles only the given paths and subtrees (from the file watcher)
+    public LibraryCatalog.Changes refresh(Collection<Path> paths, Collection<Path> subtrees) throws IOException {
+        return timedIO("refresh", () -> {
+            LibraryCatalog.Changes changes = catalog.refresh(paths, subtrees);
+            if (!changes.isEmpty()) {
+                applyChanges(changes);
+            }
+            return changes;
+        });
+    }
+
+    private void applyChanges(LibraryCatalog.Changes changes) throws IOException {
+        for (File file : changes.removed) {
+            contentStore.remove(file.toPath());
+        }
+        for (StudyMaterial material : changes.updated) {
+            contentStore.register(material.getFile().toPath());
+        }
+        for (StudyMaterial material : changes.added) {
+            contentStore.register(material.getFile().toPath());
+        }
+        contentIndexer.remove(changes.removed);
+        contentIndexer.submit(changes.updated);
+        contentIndexer.submit(changes.added);
+        catalog.save();
+    }
+
+    public ImportEngine.ImportTask startImport(List<File> sources, Predicate<File> isKnown,
+                                               ImportEngine.Listener listener) {
+        return new ImportEngine(root, contentStore, catalog::newId).start(sources, isKnown, listener);
+    }
+
+    // Records materials produced by an import; the caller saves once the import is done
+    public void addImported(Collection<StudyMaterial> materials) {
+        for (StudyMaterial material : materials) {
+            catalog.put(material);
+        }
+        contentIndexer.submit(materials);
+    }
+
+    // Imports files and folders and waits for the import to finish
+    public ImportEngine.ImportSummary importFiles(List<File> sources, List<String> failures) throws IOException {
+        return timedIO("import", () -> {
+            Set<File> known = new HashSet<>();
+            for (StudyMaterial material : catalog.toMaterials()) {
+                known.add(material.getFile());
+            }
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<ImportEngine.ImportSummary> summary = new AtomicReference<>();
+            startImport(sources, known::contains, new ImportEngine.Listener() {
+                @Override
+                public void onBatch(List<StudyMaterial> materials) {
+                    addImported(materials);
+                }
+
+                @Override
+                public void onProgress(int completed, int discovered, long bytesCopied) {
+                }
+
+                @Override
+                public void onFailure(File file, IOException error) {
+                    synchronized (failures) {
+                        failures.add(file + ": " + error.getMessage());
+                    }
+                }
+
+                @Override
+                public void onComplete(ImportEngine.ImportSummary result) {
+                    summary.set(result);
+                    done.countDown();
+                }
+            });
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            save();
+            return summary.get();
+        });
+    }
+
+    // Name and content search, optionally limited to one category; category may be null
+    public List<StudyMaterial> search(String query, Category category, int limit) {
+        return timed("search", () -> {
+            MaterialTable table = new MaterialTable();
+            for (StudyMaterial material : catalog.toMaterials()) {
+                table.add(material);
+            }
+            IntPredicate filter = MaterialSearch.filter(table, category,
+                query.isEmpty() ? null : MaterialSearch.search(table, query, contentIndex, noteIndex, catalog));
+            List<StudyMaterial> results = new ArrayList<>();
+            for (int row = 0; row < table.rowCount() && results.size() < limit; row++) {
+                if (filter == null || filter.test(row)) {
+                    results.add(table.materialize(row));
+                }
+            }
+            return results;
+        });
+    }
+
+    public OrganizePlan planOrganize() {
+        return timed("planOrganize", () -> OrganizePlan.compute(catalog.toMaterials(), root));
+    }
+
+    public List<OrganizePlan.Move> organize(OrganizePlan plan, TransferEngine transferEngine,
+                                            OrganizeTransaction.ProgressListener listener) throws IOException {
+        return timedIO("organize", () -> {
+            List<OrganizePlan.Move> moves = new OrganizeTransaction(plan, transferEngine).execute(listener);
+            applyMoves(moves);
+            return moves;
+        });
+    }
+
+    // Renames moved files in the catalog, hashes and index instead of rescanning. Sessions,
+    // notes and bookmarks refer to materials by id, so they need no update.
+    public void applyMoves(List<OrganizePlan.Move> moves) {
+        catalog.applyMoves(moves);
+        for (OrganizePlan.Move move : moves) {
+            contentStore.rename(move.source, move.target);
+        }
+        contentIndexer.rename(moves);
+        try {
+            save();
+        } catch (IOException e) {
+            // The next reconcile rewrites the catalog
+        }
+    }
+
+    // Mirrors the catalogued materials to a bucket (see SyncEngine) and waits for it;
+    // bytesPerSecond caps the upload rate, 0 for no cap
+    public SyncEngine.SyncSummary sync(BlobStore store, long bytesPerSecond, SyncEngine.Listener listener)
+            throws IOException {
+        return timedIO("sync", () -> {
+            List<Path> files = new ArrayList<>();
+            for (LibraryCatalog.Entry entry : catalog.entries()) {
+                files.add(root.resolve(entry.relativePath));
+            }
+            return new SyncEngine(root, store, SyncEngine.DEFAULT_WORKERS, bytesPerSecond).sync(files, listener);
+        });
+    }
+
+    public List<List<Path>> findDuplicates() throws IOException {
+        return timedIO("findDuplicates", contentStore::duplicateGroups);
+    }
+
+    // Replaces every duplicate with a hard link to the first file of its group. Returns
+    // the number of bytes freed; files that already share storage are left alone.
+    public long linkDuplicates(List<List<Path>> groups) throws IOException {
+        return timedIO("linkDuplicates", () -> {
+            long freed = 0;
+            for (List<Path> group : groups) {
+                Path keep = group.get(0);
+                for (Path duplicate : group.subList(1, group.size())) {
+                    if (Files.isSameFile(keep, duplicate)) {
+                        continue;
+                    }
+                    long size = Files.size(duplicate);
+                    Path temp = duplicate.resolveSibling(duplicate.getFileName() + TransferEngine.PARTIAL_SUFFIX);
+                    Files.deleteIfExists(temp);
+                    Files.createLink(temp, keep);
+                    Files.move(temp, duplicate, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    contentStore.register(duplicate);
+                    freed += size;
+                }
+            }
+            save();
+            return freed;
+        });
+    }
+
+    public LibraryStats stats() {
+        LibraryStats stats = new LibraryStats();
+        for (StudyMaterial material : catalog.toMaterials()) {
+            stats.add(material);
+        }
+        return stats;
+    }
+
+    public void save() throws IOException {
+        timedIO("save", () -> {
+            catalog.save();
+            contentStore.save();
+            return null;
+        });
+    }
+
+    // Waits for content extraction to finish; batch runs call this before exiting
+    public void awaitIndexing() throws InterruptedIOException {
+        try {
+            contentIndexer.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Indexing interrupted");
+        }
+    }
+
+    private interface Operation<T> {
+        T run() throws IOException;
+    }
+
+    private static <T> T timedIO(String operation, Operation<T> body) throws IOException {
+        long started = System.nanoTime();
+        try {
+            return body.run();
+        } catch (IOException | RuntimeException e) {
+            Metrics.global().error("library." + operation, String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            Metrics.global().timer("library." + operation).since(started);
+        }
+    }
+
+    private static <T> T timed(String operation, Supplier<T> body) {
+        long started = System.nanoTime();
+        try {
+            return body.get();
+        } catch (RuntimeException e) {
+            Metrics.global().error("library." + operation, String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            Metrics.global().timer("library." + operation).since(started);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Metrics.global().removeGauge("library.materials", materialCount);
+        contentIndexer.shutdown();
+        try {
+            records.close();
+        } finally {
+            save();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.studymate;
+
+import java.util.Arrays;
+
+// Per-category material counts and byte totals, kept in primitive arrays indexed by
+// Category ordinal. Updated incrementally as materials come and go, so the side panel
+// never has to recount the library.
+class LibraryStats {
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final int[] counts = new int[CATEGORIES.length];
+    private final long[] bytes = new long[CATEGORIES.length];
+    private int totalCount;
+    private long totalBytes;
+    private int changed; // bit per category ordinal, see takeChanged()
+
+    public void add(StudyMaterial material) {
+        add(material.getCategory(), material.getSize());
+    }
+
+    public void add(Category category, long size) {
+        int index = category.ordinal();
+        counts[index]++;
+        bytes[index] += size;
+        changed |= 1 << index;
+        totalCount++;
+        totalBytes += size;
+    }
+
+    public void remove(Category category, long size) {
+        int index = category.ordinal();
+        counts[index]--;
+        bytes[index] -= size;
+        changed |= 1 << index;
+        totalCount--;
+        totalBytes -= size;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(bytes, 0);
+        totalCount = 0;
+        totalBytes = 0;
+        changed = (1 << CATEGORIES.length) - 1;
+    }
+
+    // Returns the categories touched since the last call as a bit set of ordinals, so
+    // a display only has to refresh those rows
+    public int takeChanged() {
+        int result = changed;
+        changed = 0;
+        return result;
+    }
+
+    public int getCount(Category category) {
+        return counts[category.ordinal()];
+    }
+
+    public long getBytes(Category category) {
+        return bytes[category.ordinal()];
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,171 @@
+package com.studymate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Watches the study directory (and every subfolder, including the category folders
+// created by Auto Organize) and reports changes in coalesced batches, so a burst of
+// thousands of events turns into a handful of library updates.
+class LibraryWatcher implements Closeable {
+    private static final long QUIET_PERIOD_MS = 300;
+    private static final long MAX_DELAY_MS = 2000;
+
+    interface Listener {
+        // Called on the watcher thread with the paths touched since the last batch
+        void onChanges(Set<Path> paths, Set<Path> rescanSubtrees);
+    }
+
+    private final Path root;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    LibraryWatcher(Path root, Listener listener) throws IOException {
+        this.root = root;
+        this.listener = listener;
+        this.watchService = root.getFileSystem().newWatchService();
+        registerTree(root);
+        this.thread = new Thread(this::processEvents, "library-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        thread.interrupt();
+    }
+
+    // Registers start and every directory below it, reading only directories. On file
+    // systems whose directory link count is 2 plus the number of subdirectories (ext4,
+    // XFS), a folder's entries stop being checked once all its subdirectories were found,
+    // so a folder of files costs no stat calls at all.
+    private void registerTree(Path start) throws IOException {
+        register(start);
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Path directory = pending.pop();
+            int subdirectories = subdirectoryCount(directory);
+            if (subdirectories == 0) {
+                continue;
+            }
+            int found = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    if (found == subdirectories) {
+                        break;
+                    }
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        found++;
+                        register(entry);
+                        pending.push(entry);
+                    }
+                }
+            } catch (IOException e) {
+                // Unreadable or gone; the rest of the tree is still watched
+            }
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        watchedDirectories.put(key, directory);
+    }
+
+    // The number of subdirectories according to the link count, or -1 where the file
+    // system does not keep it that way (e.g. btrfs, which always reports 1)
+    private static int subdirectoryCount(Path directory) {
+        try {
+            int links = (Integer) Files.getAttribute(directory, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+            return links >= 2 ? links - 2 : -1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private void processEvents() {
+        Set<Path> pendingPaths = new LinkedHashSet<>();
+        Set<Path> pendingSubtrees = new LinkedHashSet<>();
+        long firstPending = 0;
+
+        while (running) {
+            WatchKey key;
+            try {
+                if (pendingPaths.isEmpty() && pendingSubtrees.isEmpty()) {
+                    key = watchService.take();
+                    firstPending = System.currentTimeMillis();
+                } else {
+                    key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key != null) {
+                Path directory = watchedDirectories.get(key);
+                if (directory != null) {
+                    collectEvents(key, directory, pendingPaths, pendingSubtrees);
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+
+            // Flush once the storm calms down, but never hold changes back for too long
+            boolean quiet = key == null;
+            boolean overdue = System.currentTimeMillis() - firstPending >= MAX_DELAY_MS;
+            if ((quiet || overdue) && (!pendingPaths.isEmpty() || !pendingSubtrees.isEmpty())) {
+                listener.onChanges(pendingPaths, pendingSubtrees);
+                pendingPaths = new LinkedHashSet<>();
+                pendingSubtrees = new LinkedHashSet<>();
+                firstPending = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void collectEvents(WatchKey key, Path directory, Set<Path> paths, Set<Path> subtrees) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were dropped; only this directory's subtree needs a rescan
+                subtrees.add(directory);
+                continue;
+            }
+
+            Path child = directory.resolve((Path) event.context());
+            if (LibraryCatalog.isIgnored(child)) {
+                continue;
+            }
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    registerTree(child);
+                } catch (IOException e) {
+                    // Directory disappeared again before it could be watched
+                }
+                // Files may have landed before the watch was registered
+                subtrees.add(child);
+            } else {
+                paths.add(child);
+            }
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+}
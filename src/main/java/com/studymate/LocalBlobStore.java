@@ -0,0 +1,58 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+
+// BlobStore backed by a directory: the offline stand-in for a bucket, used to try and
+// benchmark sync without credentials or a network. Objects are written to a temporary
+// file and renamed into place, so a reader never sees half an object.
+class LocalBlobStore implements BlobStore {
+    private final Path directory;
+
+    LocalBlobStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void put(String key, byte[] data, int length) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(data, 0, length);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        Path path = directory.resolve(key).normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Key escapes the store: " + key);
+        }
+        return path;
+    }
+}
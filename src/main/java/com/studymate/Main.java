@@ -1,13 +1,14 @@
-// package com.studymate;
+package com.studymate;
 
+import javafx.application.Application;
 
-// import javafx.application.Application;
-
-// public class Main {
-//     public static void main(String[] args) {
-//         Logincontroller loginController = new Logincontroller();
-//         //page2 page2App = new page2();
-        
-//         Application.launch(Logincontroller.class, args);
-//     }
-// }
\ No newline at end of file
+// Starts the JavaFX app, or runs a headless library command when one is given
+// (see LibraryCli), so batch jobs never pay for JavaFX startup.
+public class Main {
+    public static void main(String[] args) {
+        if (args.length > 0 && LibraryCli.isCommand(args[0])) {
+            System.exit(new LibraryCli(System.out).run(args));
+        }
+        Application.launch(StudyMaterialsManager.class, args);
+    }
+}
@@ -0,0 +1,83 @@
+package com.studymate;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+// Bookmark/Favorites Feature
+class MaterialBookmark {
+    // Star strings for priorities 1-5, built once instead of on every call
+    private static final String[] PRIORITY_STARS = new String[6];
+    static {
+        for (int priority = 1; priority <= 5; priority++) {
+            StringBuilder stars = new StringBuilder();
+            // Add filled stars
+            for (int i = 0; i < priority; i++) {
+                stars.append("⭐");
+            }
+            // Add empty stars
+            for (int i = 0; i < (5 - priority); i++) {
+                stars.append("☆");
+            }
+            PRIORITY_STARS[priority] = stars.toString();
+        }
+    }
+    
+    private long materialId; // StudyMaterial id; bookmarks are keyed by it
+    private String materialPath; // where the material was when it was bookmarked
+    private String customName;
+    private String notes;
+    private int priority; // 1-5 stars
+    private LocalDateTime bookmarked;
+    private Consumer<MaterialBookmark> onChange; // set by LibraryService to save and re-rank edits
+    
+    public MaterialBookmark(String materialPath, String customName, int priority) {
+        this.materialPath = materialPath;
+        this.customName = customName;
+        this.priority = Math.max(1, Math.min(5, priority));
+        this.bookmarked = LocalDateTime.now();
+        this.notes = "";
+    }
+    
+    // Restores a stored bookmark
+    MaterialBookmark(long materialId, String materialPath, String customName, String notes, int priority,
+                     LocalDateTime bookmarked) {
+        this.materialId = materialId;
+        this.materialPath = materialPath;
+        this.customName = customName;
+        this.notes = notes;
+        this.priority = Math.max(1, Math.min(5, priority));
+        this.bookmarked = bookmarked;
+    }
+    
+    // Getters and Setters
+    public long getMaterialId() { return materialId; }
+    void setMaterialId(long materialId) { this.materialId = materialId; }
+    public String getMaterialPath() { return materialPath; }
+    void setOnChange(Consumer<MaterialBookmark> onChange) { this.onChange = onChange; }
+    public String getCustomName() { return customName; }
+    public void setCustomName(String customName) { 
+        this.customName = customName; 
+        changed();
+    }
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { 
+        this.notes = notes; 
+        changed();
+    }
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { 
+        this.priority = Math.max(1, Math.min(5, priority)); 
+        changed();
+    }
+    public LocalDateTime getBookmarked() { return bookmarked; }
+    
+    public String getPriorityStars() {
+        return PRIORITY_STARS[priority];
+    }
+    
+    private void changed() {
+        if (onChange != null) {
+            onChange.accept(this);
+        }
+    }
+}
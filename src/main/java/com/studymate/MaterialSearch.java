@@ -0,0 +1,186 @@
+package com.studymate;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+// Search-as-you-type core. Queries run on a single background thread; a newer query
+// makes any older one stale, and extending the previous query only rescans the
+// previous matches instead of the whole library. Query times go to Metrics
+// ("search.query"), as does the number of queries abandoned for a newer one.
+class MaterialSearch {
+    private static final int STALE_CHECK_INTERVAL = 1024;
+    private static final int CONTENT_HIT_LIMIT = 500;
+    private static final Metrics.Timer QUERY_TIME = Metrics.global().timer("search.query");
+
+    interface Callback {
+        // Called on the search thread; use isCurrent() before applying the result
+        void onResult(long generation, Result result);
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "material-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong generation = new AtomicLong();
+
+    // Only touched on the search thread
+    private String lastQuery;
+    private long lastVersion = -1;
+    private int[] lastNameMatches;
+
+    // names must come from MaterialTable.names(); version identifies the table's contents
+    public long submit(MaterialTable.Names names, long version, String query,
+                       ContentIndex contentIndex, NoteIndex noteIndex, LibraryCatalog catalog, Callback callback) {
+        long current = generation.incrementAndGet();
+        worker.execute(() -> {
+            if (!isCurrent(current)) {
+                Metrics.global().counter("search.stale").increment();
+                return;
+            }
+            long started = System.nanoTime();
+            Result result = run(current, names, version, query, contentIndex, noteIndex, catalog);
+            if (result == null) {
+                Metrics.global().counter("search.stale").increment();
+                return;
+            }
+            QUERY_TIME.since(started);
+            callback.onResult(current, result);
+        });
+        return current;
+    }
+
+    // Invalidates any query still running, e.g. when the search box is cleared
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public boolean isCurrent(long queryGeneration) {
+        return generation.get() == queryGeneration;
+    }
+
+    private Result run(long current, MaterialTable.Names names, long version, String query,
+                       ContentIndex contentIndex, NoteIndex noteIndex, LibraryCatalog catalog) {
+        String normalized = query.toLowerCase();
+
+        // Refine the previous matches when the user just kept typing
+        int[] candidates = null;
+        if (lastNameMatches != null && version == lastVersion && normalized.startsWith(lastQuery)) {
+            candidates = lastNameMatches;
+        }
+
+        int[] nameMatches = matchNames(names, candidates, normalized, () -> !isCurrent(current));
+        if (nameMatches == null) {
+            return null;
+        }
+        lastQuery = normalized;
+        lastVersion = version;
+        lastNameMatches = nameMatches;
+        return new Result(names.generation(), nameMatches, matchContent(query, contentIndex, noteIndex, catalog));
+    }
+
+    // Runs a query to completion on the calling thread, without the incremental state
+    // (used outside the UI, e.g. by the command line and the benchmarks)
+    static Result search(MaterialTable table, String query, ContentIndex contentIndex, NoteIndex noteIndex,
+                         LibraryCatalog catalog) {
+        MaterialTable.Names names = table.names();
+        int[] nameMatches = matchNames(names, null, query.toLowerCase(), () -> false);
+        return new Result(names.generation(), nameMatches, matchContent(query, contentIndex, noteIndex, catalog));
+    }
+
+    // Scans the candidate rows, or every row when candidates is null. Returns null if
+    // the query went stale before it finished.
+    private static int[] matchNames(MaterialTable.Names names, int[] candidates, String normalized,
+                                    BooleanSupplier stale) {
+        int count = candidates != null ? candidates.length : names.rowCount();
+        int[] matches = new int[Math.min(count, 1024)];
+        int matched = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % STALE_CHECK_INTERVAL == 0 && stale.getAsBoolean()) {
+                return null;
+            }
+            int row = candidates != null ? candidates[i] : i;
+            if (names.contains(row, normalized)) {
+                if (matched == matches.length) {
+                    matches = Arrays.copyOf(matches, Math.min(count, matched * 2));
+                }
+                matches[matched++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, matched);
+    }
+
+    // Materials whose extracted text matches, plus those with a matching note
+    private static Set<File> matchContent(String query, ContentIndex contentIndex, NoteIndex noteIndex,
+                                          LibraryCatalog catalog) {
+        if (query.trim().length() < 3) {
+            return Collections.emptySet();
+        }
+        Path root = catalog.getRoot();
+        Set<File> contentMatches = new HashSet<>();
+        if (contentIndex != null) {
+            for (String relativePath : contentIndex.search(query, CONTENT_HIT_LIMIT)) {
+                contentMatches.add(root.resolve(relativePath).toFile());
+            }
+        }
+        if (noteIndex != null) {
+            for (NoteIndex.Hit hit : noteIndex.search(query, CONTENT_HIT_LIMIT)) {
+                // Notes follow their material by id, wherever it was moved since
+                String relativePath = catalog.pathOf(hit.getMaterialId());
+                if (relativePath != null) {
+                    contentMatches.add(root.resolve(relativePath).toFile());
+                }
+            }
+        }
+        return contentMatches;
+    }
+
+    // Combined category and query filter over table rows; null when nothing is filtered out
+    static IntPredicate filter(MaterialTable table, Category category, Result result) {
+        if (category == null && result == null) {
+            return null;
+        }
+        BitSet matches = result != null ? result.rows(table) : null;
+        return row -> (category == null || table.getCategory(row) == category) &&
+            (matches == null || matches.get(row));
+    }
+
+    static final class Result {
+        private final int tableGeneration;
+        private final BitSet rows = new BitSet();
+        private Set<File> unresolvedContent;
+
+        Result(int tableGeneration, int[] nameMatches, Set<File> contentMatches) {
+            this.tableGeneration = tableGeneration;
+            for (int row : nameMatches) {
+                rows.set(row);
+            }
+            this.unresolvedContent = contentMatches;
+        }
+
+        // False once the table renumbered its rows; the query has to run again
+        boolean isFor(MaterialTable table) {
+            return table.generation() == tableGeneration;
+        }
+
+        // Content hits are looked up in the table on first use, on the thread that owns it
+        BitSet rows(MaterialTable table) {
+            if (unresolvedContent != null) {
+                for (File file : unresolvedContent) {
+                    int row = table.find(file);
+                    if (row >= 0) {
+                        rows.set(row);
+                    }
+                }
+                unresolvedContent = null;
+            }
+            return rows;
+        }
+    }
+}
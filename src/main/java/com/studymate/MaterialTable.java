@@ -0,0 +1,455 @@
+package com.studymate;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compact, columnar copy of the library for the materials list. Each material is a row:
+// id, size, date added and category live in primitive arrays, file names are packed into
+// one shared char buffer addressed through an offset table, and folders are interned, so
+// a million materials cost a handful of arrays instead of a million File, String and
+// StudyMaterial objects. StudyMaterial objects are created on demand with materialize().
+//
+// Rows are appended; a removed row becomes a tombstone until compact() renumbers the
+// table. The table is changed on one thread only (the FX thread in the app); contains()
+// and find() may be called from any thread, and names() hands an immutable view of the
+// names to a background search.
+class MaterialTable {
+    private static final Category[] CATEGORIES = Category.values();
+    private static final int INITIAL_ROWS = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Columns, indexed by row
+    private long[] ids = new long[INITIAL_ROWS];
+    private int[] folders = new int[INITIAL_ROWS];
+    private long[] sizes = new long[INITIAL_ROWS];
+    private long[] dates = new long[INITIAL_ROWS];
+    private byte[] categories = new byte[INITIAL_ROWS];
+    // Row r's name is names[nameOffsets[r] .. nameOffsets[r + 1])
+    private int[] nameOffsets = new int[INITIAL_ROWS + 1];
+    private char[] names = new char[INITIAL_ROWS * 32];
+    private final BitSet removed = new BitSet();
+    private int rowCount;
+    private int liveCount;
+    private int generation; // bumped whenever rows are renumbered
+
+    private final List<String> folderPaths = new ArrayList<>();
+    private final Map<String, Integer> folderIds = new HashMap<>();
+
+    // Open-addressing path lookup: row + 1 per slot, 0 when empty; linear probing
+    private int[] slots = new int[INITIAL_ROWS * 2];
+
+    // Returns the new row, or the existing row if the file is already in the table
+    public int add(StudyMaterial material) {
+        File file = material.getFile();
+        lock.writeLock().lock();
+        try {
+            int existing = findLocked(file);
+            if (existing >= 0) {
+                return existing;
+            }
+            String name = file.getName();
+            int row = rowCount;
+            ensureRowCapacity(row + 1);
+            ensureNameCapacity(nameOffsets[row] + name.length());
+
+            ids[row] = material.getId();
+            folders[row] = internFolder(file.getParent());
+            sizes[row] = material.getSize();
+            dates[row] = material.getDateAddedMillis();
+            categories[row] = (byte) material.getCategory().ordinal();
+            name.getChars(0, name.length(), names, nameOffsets[row]);
+            nameOffsets[row + 1] = nameOffsets[row] + name.length();
+            rowCount++;
+            liveCount++;
+
+            if (liveCount * 2 > slots.length) {
+                rehash(slots.length * 2);
+            } else {
+                insertSlot(row);
+            }
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The row's columns stay readable (e.g. to find it in a sorted list) until compact()
+    public void remove(int row) {
+        lock.writeLock().lock();
+        try {
+            if (row < 0 || row >= rowCount || removed.get(row)) {
+                return;
+            }
+            removeSlot(row);
+            removed.set(row);
+            liveCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids = new long[INITIAL_ROWS];
+            folders = new int[INITIAL_ROWS];
+            sizes = new long[INITIAL_ROWS];
+            dates = new long[INITIAL_ROWS];
+            categories = new byte[INITIAL_ROWS];
+            nameOffsets = new int[INITIAL_ROWS + 1];
+            names = new char[INITIAL_ROWS * 32];
+            slots = new int[INITIAL_ROWS * 2];
+            removed.clear();
+            folderPaths.clear();
+            folderIds.clear();
+            rowCount = 0;
+            liveCount = 0;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Worth compacting once tombstones outnumber the live rows
+    public boolean isSparse() {
+        return rowCount - liveCount > Math.max(INITIAL_ROWS, liveCount);
+    }
+
+    // Drops the tombstones and renumbers the rows. Returns the old-to-new row mapping
+    // (-1 for removed rows) so holders of row numbers can follow. New arrays are
+    // allocated, so views handed out by names() stay valid.
+    public int[] compact() {
+        lock.writeLock().lock();
+        try {
+            int[] remap = new int[rowCount];
+            int capacity = Math.max(INITIAL_ROWS, liveCount + liveCount / 2);
+            long[] newIds = new long[capacity];
+            int[] newFolders = new int[capacity];
+            long[] newSizes = new long[capacity];
+            long[] newDates = new long[capacity];
+            byte[] newCategories = new byte[capacity];
+            int[] newOffsets = new int[capacity + 1];
+            int nameLength = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (!removed.get(row)) {
+                    nameLength += nameOffsets[row + 1] - nameOffsets[row];
+                }
+            }
+            char[] newNames = new char[Math.max(INITIAL_ROWS * 32, nameLength + nameLength / 2)];
+
+            int live = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (removed.get(row)) {
+                    remap[row] = -1;
+                    continue;
+                }
+                remap[row] = live;
+                newIds[live] = ids[row];
+                newFolders[live] = folders[row];
+                newSizes[live] = sizes[row];
+                newDates[live] = dates[row];
+                newCategories[live] = categories[row];
+                int length = nameOffsets[row + 1] - nameOffsets[row];
+                System.arraycopy(names, nameOffsets[row], newNames, newOffsets[live], length);
+                newOffsets[live + 1] = newOffsets[live] + length;
+                live++;
+            }
+            ids = newIds;
+            folders = newFolders;
+            sizes = newSizes;
+            dates = newDates;
+            categories = newCategories;
+            nameOffsets = newOffsets;
+            names = newNames;
+            removed.clear();
+            rowCount = live;
+            generation++;
+            rehash(slots.length);
+            return remap;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Read-only copy of the current rows for sorting on another thread (see
+    // SortedMaterialIndex.sortInBackground()): the columns and comparePaths(), not find().
+    // The name characters are shared; rows are only appended to them, never rewritten.
+    public MaterialTable snapshot() {
+        lock.readLock().lock();
+        try {
+            MaterialTable copy = new MaterialTable();
+            copy.ids = Arrays.copyOf(ids, rowCount);
+            copy.folders = Arrays.copyOf(folders, rowCount);
+            copy.sizes = Arrays.copyOf(sizes, rowCount);
+            copy.dates = Arrays.copyOf(dates, rowCount);
+            copy.categories = Arrays.copyOf(categories, rowCount);
+            copy.nameOffsets = Arrays.copyOf(nameOffsets, rowCount + 1);
+            copy.names = names;
+            copy.removed.or(removed);
+            copy.rowCount = rowCount;
+            copy.liveCount = liveCount;
+            copy.generation = generation;
+            copy.folderPaths.addAll(folderPaths);
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Row of the file, or -1
+    public int find(File file) {
+        lock.readLock().lock();
+        try {
+            return findLocked(file);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(File file) {
+        return find(file) >= 0;
+    }
+
+    // Number of live rows
+    public int size() {
+        return liveCount;
+    }
+
+    // Upper bound of the row numbers in use, tombstones included
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int generation() {
+        return generation;
+    }
+
+    public boolean isLive(int row) {
+        return row >= 0 && row < rowCount && !removed.get(row);
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    public long getSize(int row) {
+        return sizes[row];
+    }
+
+    public long getDateAdded(int row) {
+        return dates[row];
+    }
+
+    public Category getCategory(int row) {
+        return CATEGORIES[categories[row]];
+    }
+
+    public String getName(int row) {
+        return new String(names, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row]);
+    }
+
+    public File getFile(int row) {
+        String folder = folderPaths.get(folders[row]);
+        return folder != null ? new File(folder, getName(row)) : new File(getName(row));
+    }
+
+    public StudyMaterial materialize(int row) {
+        return new StudyMaterial(ids[row], getFile(row), sizes[row], getCategory(row), dates[row]);
+    }
+
+    // Total order on the file paths without building them: folder first, then name
+    public int comparePaths(int a, int b) {
+        if (folders[a] != folders[b]) {
+            String folderA = folderPaths.get(folders[a]);
+            String folderB = folderPaths.get(folders[b]);
+            int result = folderA == null ? (folderB == null ? 0 : -1)
+                : folderB == null ? 1 : folderA.compareTo(folderB);
+            if (result != 0) {
+                return result;
+            }
+        }
+        int aStart = nameOffsets[a];
+        int aLength = nameOffsets[a + 1] - aStart;
+        int bStart = nameOffsets[b];
+        int bLength = nameOffsets[b + 1] - bStart;
+        for (int i = 0; i < Math.min(aLength, bLength); i++) {
+            char ca = names[aStart + i];
+            char cb = names[bStart + i];
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    // Immutable view of the names of the current rows for a search on another thread
+    public Names names() {
+        lock.readLock().lock();
+        try {
+            return new Names(names, nameOffsets, rowCount, generation);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static final class Names {
+        private final char[] names;
+        private final int[] offsets;
+        private final int rowCount;
+        private final int generation;
+
+        private Names(char[] names, int[] offsets, int rowCount, int generation) {
+            this.names = names;
+            this.offsets = offsets;
+            this.rowCount = rowCount;
+            this.generation = generation;
+        }
+
+        int rowCount() {
+            return rowCount;
+        }
+
+        int generation() {
+            return generation;
+        }
+
+        // Case-insensitive substring match; normalized must already be lower case
+        boolean contains(int row, String normalized) {
+            int start = offsets[row];
+            int last = offsets[row + 1] - normalized.length();
+            for (int from = start; from <= last; from++) {
+                int i = 0;
+                while (i < normalized.length()
+                        && Character.toLowerCase(names[from + i]) == normalized.charAt(i)) {
+                    i++;
+                }
+                if (i == normalized.length()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private int findLocked(File file) {
+        Integer folder = folderIds.get(file.getParent());
+        if (folder == null) {
+            return -1;
+        }
+        String name = file.getName();
+        int mask = slots.length - 1;
+        for (int slot = hash(folder, name) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (folders[row] == folder && nameEquals(row, name)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int row, String name) {
+        int start = nameOffsets[row];
+        if (nameOffsets[row + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (names[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hashRow(int row) {
+        int h = 0;
+        for (int i = nameOffsets[row]; i < nameOffsets[row + 1]; i++) {
+            h = 31 * h + names[i];
+        }
+        return mix(folders[row], h);
+    }
+
+    private static int hash(int folder, String name) {
+        return mix(folder, name.hashCode());
+    }
+
+    private static int mix(int folder, int nameHash) {
+        int h = nameHash * 0x9E3779B9 + folder;
+        return h ^ (h >>> 16);
+    }
+
+    private void insertSlot(int row) {
+        int mask = slots.length - 1;
+        int slot = hashRow(row) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstone slots
+    private void removeSlot(int row) {
+        int mask = slots.length - 1;
+        int slot = hashRow(row) & mask;
+        while (slots[slot] != row + 1) {
+            if (slots[slot] == 0) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = hashRow(slots[next] - 1) & mask;
+            // Move the entry back unless its home lies cyclically in (hole, next]
+            boolean stays = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!stays) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        while (liveCount * 2 > capacity) {
+            capacity *= 2;
+        }
+        slots = new int[capacity];
+        for (int row = 0; row < rowCount; row++) {
+            if (!removed.get(row)) {
+                insertSlot(row);
+            }
+        }
+    }
+
+    private int internFolder(String folder) {
+        Integer id = folderIds.get(folder);
+        if (id == null) {
+            id = folderPaths.size();
+            folderPaths.add(folder);
+            folderIds.put(folder, id);
+        }
+        return id;
+    }
+
+    private void ensureRowCapacity(int rows) {
+        if (rows <= folders.length) {
+            return;
+        }
+        int capacity = Math.max(rows, folders.length + folders.length / 2);
+        ids = Arrays.copyOf(ids, capacity);
+        folders = Arrays.copyOf(folders, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+    }
+
+    private void ensureNameCapacity(int length) {
+        if (length > names.length) {
+            names = Arrays.copyOf(names, Math.max(length, names.length + names.length / 2));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.studymate;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide counters, timers and gauges for library operations, plus the most recent
+// errors. Recording is lock-free and allocation-free so it can sit on hot paths (a
+// file copy, a keystroke); snapshot() renders everything as JSON for the command line
+// and MetricsServer. Names are dotted, e.g. "transfer.copy" or "library.scan".
+final class Metrics {
+    private static final Metrics GLOBAL = new Metrics();
+    private static final int RECENT_ERRORS = 50;
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Deque<JSONObject> errors = new ArrayDeque<>();
+    private final long startedMillis = System.currentTimeMillis();
+
+    static Metrics global() {
+        return GLOBAL;
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    // Read when a snapshot is taken; replaces any gauge of the same name
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Drops the gauge unless another one has replaced it since, so it no longer keeps
+    // what it reads reachable
+    public void removeGauge(String name, LongSupplier value) {
+        gauges.remove(name, value);
+    }
+
+    // Counts the error under "errors.<source>" and keeps it among the recent ones
+    public void error(String source, String message) {
+        counter("errors." + source).increment();
+        JSONObject error = new JSONObject()
+            .put("time", Instant.now().toString())
+            .put("source", source)
+            .put("message", String.valueOf(message));
+        synchronized (errors) {
+            if (errors.size() == RECENT_ERRORS) {
+                errors.removeFirst();
+            }
+            errors.addLast(error);
+        }
+    }
+
+    public JSONObject snapshot() {
+        JSONObject counterValues = new JSONObject();
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            counterValues.put(counter.getKey(), counter.getValue().sum());
+        }
+        JSONObject gaugeValues = new JSONObject();
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+            gaugeValues.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        JSONObject timerValues = new JSONObject();
+        for (Map.Entry<String, Timer> timer : new TreeMap<>(timers).entrySet()) {
+            timerValues.put(timer.getKey(), timer.getValue().toJson());
+        }
+        JSONArray recentErrors;
+        synchronized (errors) {
+            recentErrors = new JSONArray(errors);
+        }
+        return new JSONObject()
+            .put("uptimeMillis", System.currentTimeMillis() - startedMillis)
+            .put("counters", counterValues)
+            .put("gauges", gaugeValues)
+            .put("timers", timerValues)
+            .put("recentErrors", recentErrors);
+    }
+
+    // Durations in nanoseconds: count, total, max and a latency histogram
+    static final class Timer {
+        private final LongAdder total = new LongAdder();
+        private final Histogram histogram = new Histogram();
+
+        // Usage: long started = System.nanoTime(); ...; timer.since(started);
+        public void since(long startedNanos) {
+            record(System.nanoTime() - startedNanos);
+        }
+
+        public void record(long nanos) {
+            total.add(nanos);
+            histogram.record(nanos);
+        }
+
+        public long count() {
+            return histogram.count();
+        }
+
+        public long percentile(double percentile) {
+            return histogram.percentile(percentile);
+        }
+
+        JSONObject toJson() {
+            long count = histogram.count();
+            return new JSONObject()
+                .put("count", count)
+                .put("totalMillis", millis(total.sum()))
+                .put("meanMillis", count == 0 ? 0 : millis(total.sum() / count))
+                .put("p50Millis", millis(histogram.percentile(50)))
+                .put("p90Millis", millis(histogram.percentile(90)))
+                .put("p99Millis", millis(histogram.percentile(99)))
+                .put("p999Millis", millis(histogram.percentile(99.9)))
+                .put("maxMillis", millis(histogram.max()));
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+
+    // HdrHistogram-style log-linear buckets: exact below 128, then 64 linear sub-buckets
+    // per power of two, so every recorded value is within 1/64 (1.6%) of its bucket
+    // whatever its magnitude. Fixed size (3,712 buckets), lock-free, never resized.
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 6;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int EXACT = SUB_BUCKETS * 2;
+        private static final int BUCKETS = EXACT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts.incrementAndGet(index(value));
+            count.increment();
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // lost a race with a larger value or another writer; re-check
+            }
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        // The value at or below which percentile% of the recorded values fall, rounded up
+        // to the top of its bucket
+        public long percentile(double percentile) {
+            long total = count.sum();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int index(long value) {
+            if (value < EXACT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            return EXACT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        static long highestValue(int index) {
+            if (index < EXACT) {
+                return index;
+            }
+            int exponent = (index - EXACT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            int shift = exponent - SUB_BUCKET_BITS;
+            long subBucket = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.studymate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the Metrics snapshot as JSON at http://127.0.0.1:<port>/metrics for a scraper.
+// Bound to the loopback interface only; off unless a port is given, in the app with
+// -Dstudymate.metricsPort=<port> and on the command line with --metrics-port.
+class MetricsServer implements Closeable {
+    static final String PORT_PROPERTY = "studymate.metricsPort";
+    static final String PATH = "/metrics";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "metrics-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // port 0 picks a free port (see getPort())
+    MetricsServer(Metrics metrics, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, exchange -> respond(exchange, metrics));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // The server for the port in the studymate.metricsPort system property, or null if unset
+    static MetricsServer startIfConfigured() throws IOException {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        return port != null ? new MetricsServer(Metrics.global(), port) : null;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, Metrics metrics) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.snapshot().toString(2).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
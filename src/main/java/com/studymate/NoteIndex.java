@@ -0,0 +1,385 @@
+package com.studymate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Positional inverted index over study note titles and contents, kept in memory and
+// updated one note at a time: re-indexing a note tombstones its old document and appends
+// a new one, and the tombstones are compacted away once they outnumber the live notes.
+// Terms live in a sorted map so the last word of an as-you-type query can match as a
+// prefix. Title tokens come first in a document, followed by a gap so a phrase never
+// spans title and content; hits in the title weigh more.
+class NoteIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> docIds = new HashMap<>();
+    // Indexed by doc id; null once the document was replaced or removed
+    private StudyNote[] docNotes = new StudyNote[256];
+    private int[] titleLengths = new int[256];
+    private int docCount;
+
+    // Indexes a saved note, replacing what was indexed for it before
+    public void put(StudyNote note) {
+        if (note.getId() == 0) {
+            throw new IllegalArgumentException("Note has not been saved: " + note.getTitle());
+        }
+        Map<String, TokenPositions> positions = new HashMap<>();
+        int titleLength = collect(note.getTitle(), 0, positions);
+        collect(note.getContent(), titleLength + 1, positions);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(note.getId());
+            int docId = docCount++;
+            if (docId == docNotes.length) {
+                docNotes = Arrays.copyOf(docNotes, docId * 2);
+                titleLengths = Arrays.copyOf(titleLengths, docId * 2);
+            }
+            docNotes[docId] = note;
+            titleLengths[docId] = titleLength;
+            docIds.put(note.getId(), docId);
+            for (Map.Entry<String, TokenPositions> term : positions.entrySet()) {
+                TokenPositions termPositions = term.getValue();
+                terms.computeIfAbsent(term.getKey(), t -> new Postings())
+                    .add(docId, termPositions.values, termPositions.size);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(StudyNote note) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(note.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long noteId) {
+        Integer docId = docIds.remove(noteId);
+        if (docId == null) {
+            return;
+        }
+        docNotes[docId] = null;
+        if (docCount - docIds.size() > Math.max(1024, docIds.size())) {
+            compactLocked();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Notes containing every word of the query, best first. "Quoted words" must appear
+    // as a phrase; the last word matches as a prefix unless the query ends with a space.
+    public List<Hit> search(String query, int limit) {
+        List<Clause> clauses = parse(query);
+        if (clauses.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] scores = new int[docCount];
+            int[] matchedClauses = new int[docCount];
+            for (int c = 0; c < clauses.size(); c++) {
+                if (!clauses.get(c).match(this, scores, matchedClauses, c)) {
+                    return Collections.emptyList();
+                }
+            }
+
+            // Keep only the best `limit` hits in a min-heap, ties going to the newer note
+            Comparator<Integer> ranking = (a, b) -> {
+                int result = Integer.compare(scores[a], scores[b]);
+                return result != 0 ? result : docNotes[a].getLastModified().compareTo(docNotes[b].getLastModified());
+            };
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, ranking);
+            for (int docId = 0; docId < docCount; docId++) {
+                if (matchedClauses[docId] == clauses.size() && docNotes[docId] != null) {
+                    top.add(docId);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            Hit[] hits = new Hit[top.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                int docId = top.poll();
+                hits[i] = new Hit(docNotes[docId], scores[docId]);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds the positions of text's tokens, numbered from offset. Returns the token count.
+    private static int collect(String text, int offset, Map<String, TokenPositions> positions) {
+        if (text == null) {
+            return 0;
+        }
+        int[] count = new int[1];
+        TextTokenizer.tokenize(text, (token, position) -> {
+            positions.computeIfAbsent(token, t -> new TokenPositions()).add(offset + position);
+            count[0] = position + 1;
+        });
+        return count[0];
+    }
+
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i <= query.length(); i++) {
+            if (i == query.length() || query.charAt(i) == '"') {
+                String part = query.substring(start, i);
+                if (quoted) {
+                    List<String> phrase = TextTokenizer.tokens(part);
+                    if (!phrase.isEmpty()) {
+                        clauses.add(new Clause(phrase, false));
+                    }
+                } else {
+                    List<String> words = TextTokenizer.tokens(part);
+                    boolean typing = i == query.length() && !part.isEmpty() &&
+                        Character.isLetterOrDigit(part.charAt(part.length() - 1));
+                    for (int w = 0; w < words.size(); w++) {
+                        boolean prefix = typing && w == words.size() - 1 && words.get(w).length() >= MIN_PREFIX_LENGTH;
+                        clauses.add(new Clause(Collections.singletonList(words.get(w)), prefix));
+                    }
+                }
+                quoted = !quoted;
+                start = i + 1;
+            }
+        }
+        return clauses;
+    }
+
+    // Renumbers the live documents densely; postings keep their positions
+    private void compactLocked() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int docId = 0; docId < docCount; docId++) {
+            if (docNotes[docId] != null) {
+                remap[docId] = live;
+                docNotes[live] = docNotes[docId];
+                titleLengths[live] = titleLengths[docId];
+                docIds.put(docNotes[live].getId(), live);
+                live++;
+            } else {
+                remap[docId] = -1;
+            }
+        }
+        Arrays.fill(docNotes, live, docCount, null);
+        docCount = live;
+        Iterator<Postings> it = terms.values().iterator();
+        while (it.hasNext()) {
+            Postings postings = it.next();
+            postings.remap(remap);
+            if (postings.size == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    // A word, a word prefix or a phrase that every hit must contain
+    private static final class Clause {
+        final List<String> words;
+        final boolean prefix;
+
+        Clause(List<String> words, boolean prefix) {
+            this.words = words;
+            this.prefix = prefix;
+        }
+
+        // Adds this clause's weighted occurrences to scores and marks the documents that
+        // matched all earlier clauses and this one. False if nothing can match.
+        boolean match(NoteIndex index, int[] scores, int[] matchedClauses, int clause) {
+            boolean any = false;
+            if (words.size() == 1) {
+                String word = words.get(0);
+                Collection<Postings> lists = prefix
+                    ? index.terms.subMap(word, true, word + Character.MAX_VALUE, false).values()
+                    : Collections.singleton(index.terms.get(word));
+                // A document can carry several terms with the prefix; count it once
+                int[] counted = new int[index.docCount];
+                for (Postings postings : lists) {
+                    if (postings == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < postings.size; i++) {
+                        int docId = postings.docs[i];
+                        if (matchedClauses[docId] < clause || index.docNotes[docId] == null) {
+                            continue;
+                        }
+                        scores[docId] += postings.weight(i, index.titleLengths[docId]);
+                        if (counted[docId]++ == 0) {
+                            matchedClauses[docId]++;
+                        }
+                        any = true;
+                    }
+                }
+                return any;
+            }
+
+            Postings[] lists = new Postings[words.size()];
+            for (int w = 0; w < lists.length; w++) {
+                lists[w] = index.terms.get(words.get(w));
+                if (lists[w] == null) {
+                    return false;
+                }
+            }
+            int[] cursors = new int[lists.length];
+            Postings first = lists[0];
+            for (int i = 0; i < first.size; i++) {
+                int docId = first.docs[i];
+                if (matchedClauses[docId] < clause || index.docNotes[docId] == null) {
+                    continue;
+                }
+                int occurrences = phraseOccurrences(lists, cursors, i, docId, index.titleLengths[docId]);
+                if (occurrences > 0) {
+                    scores[docId] += occurrences;
+                    matchedClauses[docId]++;
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        // Weighted count of the positions where every word follows the previous one
+        private static int phraseOccurrences(Postings[] lists, int[] cursors, int firstIndex, int docId,
+                                             int titleLength) {
+            int[] entries = new int[lists.length];
+            entries[0] = firstIndex;
+            for (int w = 1; w < lists.length; w++) {
+                Postings postings = lists[w];
+                while (cursors[w] < postings.size && postings.docs[cursors[w]] < docId) {
+                    cursors[w]++;
+                }
+                if (cursors[w] == postings.size || postings.docs[cursors[w]] != docId) {
+                    return 0;
+                }
+                entries[w] = cursors[w];
+            }
+            int occurrences = 0;
+            Postings first = lists[0];
+            for (int p = first.starts[firstIndex]; p < first.starts[firstIndex + 1]; p++) {
+                int start = first.positions[p];
+                boolean found = true;
+                for (int w = 1; w < lists.length && found; w++) {
+                    Postings postings = lists[w];
+                    found = Arrays.binarySearch(postings.positions, postings.starts[entries[w]],
+                        postings.starts[entries[w] + 1], start + w) >= 0;
+                }
+                if (found) {
+                    occurrences += start < titleLength ? TITLE_WEIGHT : 1;
+                }
+            }
+            return occurrences;
+        }
+    }
+
+    // Doc ids (ascending) with each document's sorted token positions, which for entry i
+    // are positions[starts[i], starts[i + 1])
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] starts = new int[5];
+        int[] positions = new int[8];
+        int size;
+
+        void add(int docId, int[] termPositions, int count) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, docs.length * 2);
+                starts = Arrays.copyOf(starts, docs.length + 1);
+            }
+            int end = starts[size];
+            if (end + count > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(end + count, positions.length * 2));
+            }
+            System.arraycopy(termPositions, 0, positions, end, count);
+            docs[size] = docId;
+            starts[size + 1] = end + count;
+            size++;
+        }
+
+        int weight(int entry, int titleLength) {
+            int weight = 0;
+            for (int p = starts[entry]; p < starts[entry + 1]; p++) {
+                weight += positions[p] < titleLength ? TITLE_WEIGHT : 1;
+            }
+            return weight;
+        }
+
+        void remap(int[] remap) {
+            int kept = 0;
+            int end = 0;
+            for (int i = 0; i < size; i++) {
+                int docId = remap[docs[i]];
+                if (docId < 0) {
+                    continue;
+                }
+                int from = starts[i];
+                int count = starts[i + 1] - from;
+                System.arraycopy(positions, from, positions, end, count);
+                docs[kept] = docId;
+                starts[kept] = end;
+                end += count;
+                kept++;
+                starts[kept] = end;
+            }
+            starts[kept] = end;
+            size = kept;
+        }
+    }
+
+    // Growable int array of one token's positions in a document
+    private static final class TokenPositions {
+        int[] values = new int[2];
+        int size;
+
+        void add(int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+
+    // A matching note; getMaterial() is the associated material's library-relative path
+    // when the note was written, getMaterialId() follows the material wherever it moved
+    static final class Hit {
+        private final StudyNote note;
+        private final int score;
+
+        Hit(StudyNote note, int score) {
+            this.note = note;
+            this.score = score;
+        }
+
+        public StudyNote getNote() {
+            return note;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getMaterial() {
+            return note.getAssociatedMaterial();
+        }
+
+        public long getMaterialId() {
+            return note.getMaterialId();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Write-ahead journal for Auto Organize. The complete plan is written and synced
+// before the first file moves; completed moves are appended (and synced) after
+// every batch. If the app dies midway the journal tells us exactly which moves
+// happened, so the operation can be resumed or rolled back on the next start.
+class OrganizeJournal implements Closeable {
+    static final String JOURNAL_FILE = ".studymate-organize.journal";
+
+    private static final byte PLAN = 'P';
+    private static final byte MOVE = 'M';
+    private static final byte DONE = 'D';
+
+    private final Path root;
+    private final Path journalFile;
+    private FileChannel channel;
+    private DataOutputStream out;
+
+    OrganizeJournal(Path root) {
+        this.root = root;
+        this.journalFile = root.resolve(JOURNAL_FILE);
+    }
+
+    public boolean exists() {
+        return Files.exists(journalFile);
+    }
+
+    public void begin(OrganizePlan plan) throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeByte(PLAN);
+        out.writeInt(plan.getMoves().size());
+        for (OrganizePlan.Move move : plan.getMoves()) {
+            out.writeByte(MOVE);
+            out.writeUTF(root.relativize(move.source).toString());
+            out.writeUTF(root.relativize(move.target).toString());
+            out.writeLong(move.size);
+            out.writeUTF(move.category.getLabel());
+        }
+        sync();
+    }
+
+    // Reopens an existing journal for appending (used when resuming)
+    public void reopen() throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    public void recordDone(Collection<Integer> moveIndexes) throws IOException {
+        for (int index : moveIndexes) {
+            out.writeByte(DONE);
+            out.writeInt(index);
+        }
+        sync();
+    }
+
+    private void sync() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    // Removes the journal once the operation is committed or fully rolled back
+    public void finish() throws IOException {
+        close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            channel = null;
+        }
+    }
+
+    // Reads back a journal left behind by an interrupted run. A record torn by the
+    // crash is ignored, which only means that move is re-checked on resume. Returns null
+    // if the plan itself was never fully written: no file was moved yet.
+    public Recovered read() throws IOException {
+        List<OrganizePlan.Move> moves = new ArrayList<>();
+        BitSet done = new BitSet();
+        int count = -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (in.readByte() != PLAN) {
+                throw new IOException("Corrupt organize journal");
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                if (in.readByte() != MOVE) {
+                    throw new IOException("Corrupt organize journal");
+                }
+                Path source = root.resolve(in.readUTF());
+                Path target = root.resolve(in.readUTF());
+                long size = in.readLong();
+                Category category = Category.fromLabel(in.readUTF());
+                moves.add(new OrganizePlan.Move(source, target, size,
+                    category != null ? category : Category.forFileName(target.getFileName().toString())));
+            }
+            while (true) {
+                if (in.readByte() != DONE) {
+                    break;
+                }
+                done.set(in.readInt());
+            }
+        } catch (EOFException e) {
+            // End of journal (possibly a torn last record)
+        }
+        if (moves.size() != count) {
+            return null;
+        }
+        return new Recovered(new OrganizePlan(root, moves), done);
+    }
+
+    static final class Recovered {
+        final OrganizePlan plan;
+        final BitSet done;
+
+        Recovered(OrganizePlan plan, BitSet done) {
+            this.plan = plan;
+            this.done = done;
+        }
+    }
+}
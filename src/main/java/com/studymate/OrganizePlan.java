@@ -0,0 +1,108 @@
+package com.studymate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// The set of moves Auto Organize would perform. Computing the plan touches nothing
+// on disk, so it doubles as the dry run shown to the user before anything moves.
+class OrganizePlan {
+    static final class Move {
+        final Path source;
+        final Path target;
+        final long size;
+        final Category category;
+
+        Move(Path source, Path target, long size, Category category) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+            this.category = category;
+        }
+
+        Move reversed() {
+            return new Move(target, source, size, category);
+        }
+    }
+
+    private final Path root;
+    private final List<Move> moves;
+
+    OrganizePlan(Path root, List<Move> moves) {
+        this.root = root;
+        this.moves = Collections.unmodifiableList(moves);
+    }
+
+    // Files already in their category folder are left alone; a name that is taken in
+    // the target folder gets a numbered name instead of failing halfway through.
+    public static OrganizePlan compute(Collection<StudyMaterial> materials, Path root) {
+        List<Move> moves = new ArrayList<>();
+        Set<Path> claimed = new HashSet<>();
+        for (StudyMaterial material : materials) {
+            Path source = material.getFile().toPath();
+            Path folder = root.resolve(material.getCategory().getLabel());
+            if (folder.equals(source.getParent())) {
+                continue;
+            }
+
+            String fileName = source.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+            String extension = dot > 0 ? fileName.substring(dot) : "";
+            Path target = folder.resolve(fileName);
+            for (int attempt = 2; !claimed.add(target) || Files.exists(target); attempt++) {
+                target = folder.resolve(base + " (" + attempt + ")" + extension);
+            }
+            moves.add(new Move(source, target, material.getSize(), material.getCategory()));
+        }
+        return new OrganizePlan(root, moves);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    public boolean isEmpty() {
+        return moves.isEmpty();
+    }
+
+    public long getTotalBytes() {
+        long total = 0;
+        for (Move move : moves) {
+            total += move.size;
+        }
+        return total;
+    }
+
+    // Human readable dry-run summary: counts and bytes per target folder
+    public String describe() {
+        if (moves.isEmpty()) {
+            return "All materials are already organized.";
+        }
+        Map<Category, long[]> perCategory = new EnumMap<>(Category.class);
+        for (Move move : moves) {
+            long[] totals = perCategory.computeIfAbsent(move.category, c -> new long[2]);
+            totals[0]++;
+            totals[1] += move.size;
+        }
+
+        StringBuilder summary = new StringBuilder(String.format("%d files (%s) will be moved:%n",
+            moves.size(), formatBytes(getTotalBytes())));
+        for (Map.Entry<Category, long[]> entry : perCategory.entrySet()) {
+            summary.append(String.format("%n• %s: %d files (%s)", entry.getKey(),
+                entry.getValue()[0], formatBytes(entry.getValue()[1])));
+        }
+        return summary.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        else if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        else if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        else return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
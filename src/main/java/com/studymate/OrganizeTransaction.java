@@ -0,0 +1,189 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Executes an organize plan all-or-nothing: moves run in parallel batches, every
+// completed batch is journaled, and on failure the moves already made are undone.
+// Runs are timed in Metrics ("organize.run"); failures and rollbacks are recorded there.
+class OrganizeTransaction {
+    private static final int BATCH_SIZE = 256;
+    private static final int MOVER_THREADS = 8;
+    private static final Metrics.Timer RUN_TIME = Metrics.global().timer("organize.run");
+
+    interface ProgressListener {
+        void onProgress(int completed, int total);
+    }
+
+    private final OrganizePlan plan;
+    private final OrganizeJournal journal;
+    private final TransferEngine transferEngine;
+    private final BitSet done;
+    // Set by resume(): moves the journal has not marked done may be half made
+    private boolean resuming;
+
+    OrganizeTransaction(OrganizePlan plan, TransferEngine transferEngine) {
+        this(plan, new OrganizeJournal(plan.getRoot()), transferEngine, new BitSet());
+    }
+
+    private OrganizeTransaction(OrganizePlan plan, OrganizeJournal journal, TransferEngine transferEngine,
+                                BitSet done) {
+        this.plan = plan;
+        this.journal = journal;
+        this.transferEngine = transferEngine;
+        this.done = done;
+    }
+
+    // Returns the transaction left behind by an interrupted run, or null if there is none
+    public static OrganizeTransaction recover(Path root, TransferEngine transferEngine) throws IOException {
+        OrganizeJournal journal = new OrganizeJournal(root);
+        if (!journal.exists()) {
+            return null;
+        }
+        OrganizeJournal.Recovered recovered = journal.read();
+        if (recovered == null) {
+            // Interrupted while the plan was being written, before any move
+            journal.finish();
+            return null;
+        }
+        return new OrganizeTransaction(recovered.plan, journal, transferEngine, recovered.done);
+    }
+
+    public OrganizePlan getPlan() {
+        return plan;
+    }
+
+    public int getCompletedCount() {
+        return done.cardinality();
+    }
+
+    // Runs the whole plan; on failure every completed move is rolled back and the
+    // original error is rethrown
+    public List<OrganizePlan.Move> execute(ProgressListener listener) throws IOException {
+        journal.begin(plan);
+        return runRemaining(listener);
+    }
+
+    // Continues an interrupted run from where its journal stopped
+    public List<OrganizePlan.Move> resume(ProgressListener listener) throws IOException {
+        journal.reopen();
+        resuming = true;
+        return runRemaining(listener);
+    }
+
+    private List<OrganizePlan.Move> runRemaining(ProgressListener listener) throws IOException {
+        long started = System.nanoTime();
+        List<OrganizePlan.Move> moves = plan.getMoves();
+        ExecutorService movers = Executors.newFixedThreadPool(MOVER_THREADS, r -> {
+            Thread thread = new Thread(r, "organize-mover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int start = 0; start < moves.size(); start += BATCH_SIZE) {
+                int end = Math.min(moves.size(), start + BATCH_SIZE);
+                Map<Integer, Future<?>> batch = new LinkedHashMap<>();
+                for (int i = start; i < end; i++) {
+                    if (!done.get(i)) {
+                        OrganizePlan.Move move = moves.get(i);
+                        batch.put(i, movers.submit(() -> {
+                            applyMove(move);
+                            return null;
+                        }));
+                    }
+                }
+
+                List<Integer> completed = new ArrayList<>();
+                IOException failure = null;
+                for (Map.Entry<Integer, Future<?>> entry : batch.entrySet()) {
+                    try {
+                        entry.getValue().get();
+                        completed.add(entry.getKey());
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause() instanceof IOException
+                                ? (IOException) e.getCause() : new IOException(e.getCause());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure = new InterruptedIOException("Organize interrupted");
+                    }
+                }
+                journal.recordDone(completed);
+                for (int index : completed) {
+                    done.set(index);
+                }
+                if (listener != null) {
+                    listener.onProgress(done.cardinality(), moves.size());
+                }
+
+                if (failure != null) {
+                    Metrics.global().error("organize", String.valueOf(failure.getMessage()));
+                    Metrics.global().counter("organize.rollbacks").increment();
+                    try {
+                        rollback();
+                    } catch (IOException rollbackFailure) {
+                        failure.addSuppressed(rollbackFailure);
+                    }
+                    throw failure;
+                }
+            }
+            journal.finish();
+            Metrics.global().counter("organize.moves").add(moves.size());
+            return moves;
+        } finally {
+            movers.shutdownNow();
+            journal.close();
+            RUN_TIME.since(started);
+        }
+    }
+
+    // Moves a file unless a previous (interrupted) attempt already did
+    private void applyMove(OrganizePlan.Move move) throws IOException {
+        if (!Files.exists(move.source) && Files.exists(move.target)) {
+            return;
+        }
+        Files.createDirectories(move.target.getParent());
+        if (resuming) {
+            transferEngine.resumeMove(move.source, move.target);
+        } else {
+            transferEngine.move(move.source, move.target);
+        }
+    }
+
+    // Moves every file that reached its target back to where it was, newest first, then
+    // discards the journal. Disk state is checked for every planned move so that a move
+    // whose journal record was lost in a crash is undone as well. A move (or an earlier
+    // rollback) interrupted halfway leaves both names linked to the same file; only the
+    // original name is kept.
+    public void rollback() throws IOException {
+        List<OrganizePlan.Move> moves = plan.getMoves();
+        IOException failure = null;
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            OrganizePlan.Move move = moves.get(i);
+            try {
+                if (Files.exists(move.target)) {
+                    if (!Files.exists(move.source)) {
+                        transferEngine.move(move.target, move.source);
+                    } else if (Files.isSameFile(move.source, move.target)) {
+                        Files.delete(move.target);
+                    }
+                }
+                done.clear(i);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            // Keep the journal so the rollback can be retried
+            throw failure;
+        }
+        journal.finish();
+    }
+}
@@ -0,0 +1,167 @@
+package com.studymate;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.*;
+
+// The ListView's items: an int array of MaterialTable rows in display order. A
+// StudyMaterial is created only when the ListView asks for a row, which in practice is
+// the visible cells, and the most recently used ones are kept so a cell sees the same
+// instance while it stays on screen. Changes are published as ordinary list changes, so
+// the ListView keeps its scroll position and selection across small updates.
+class PagedMaterialList extends ObservableListBase<StudyMaterial> {
+    private static final int MATERIALIZED_LIMIT = 2048;
+
+    private final MaterialTable table;
+    private int[] rows = new int[0];
+    private int size;
+    private final LinkedHashMap<Integer, StudyMaterial> materialized =
+        new LinkedHashMap<Integer, StudyMaterial>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, StudyMaterial> eldest) {
+                return size() > MATERIALIZED_LIMIT;
+            }
+        };
+
+    PagedMaterialList(MaterialTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public StudyMaterial get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return material(rows[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int rowAt(int index) {
+        return rows[index];
+    }
+
+    // Looks the material up by its row instead of materializing every item
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof StudyMaterial)) {
+            return -1;
+        }
+        int row = table.find(((StudyMaterial) o).getFile());
+        if (row < 0) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (rows[i] == row) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    // Position of row in this list, which must be sorted by comparator, or
+    // -(insertion point) - 1
+    public int search(int row, SortedMaterialIndex.RowComparator comparator) {
+        return SortedMaterialIndex.binarySearch(rows, size, row, comparator);
+    }
+
+    // Replaces the whole list, e.g. after the sort order or the filter changed
+    public void setRows(int[] newRows) {
+        int[] oldRows = rows;
+        int oldSize = size;
+        rows = newRows;
+        size = newRows.length;
+        if (oldSize == 0 && size == 0) {
+            return;
+        }
+        beginChange();
+        if (oldSize > 0) {
+            nextRemove(0, removedView(oldRows, oldSize));
+        }
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+        endChange();
+    }
+
+    // Empties the list and forgets the materialized rows, e.g. before the table is cleared
+    @Override
+    public void clear() {
+        setRows(new int[0]);
+        materialized.clear();
+    }
+
+    public void insert(int index, int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(16, size + size / 2));
+        }
+        System.arraycopy(rows, index, rows, index + 1, size - index);
+        rows[index] = row;
+        size++;
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    public void removeAt(int index) {
+        StudyMaterial removed = material(rows[index]);
+        System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+        size--;
+        beginChange();
+        nextRemove(index, removed);
+        endChange();
+    }
+
+    // Follows MaterialTable.compact(). The items stay the same, so no change is fired;
+    // every row shown must still be live.
+    public void remap(int[] remap) {
+        for (int i = 0; i < size; i++) {
+            rows[i] = remap[rows[i]];
+        }
+        List<Map.Entry<Integer, StudyMaterial>> kept = new ArrayList<>(materialized.entrySet());
+        materialized.clear();
+        for (Map.Entry<Integer, StudyMaterial> entry : kept) {
+            int row = remap[entry.getKey()];
+            if (row >= 0) {
+                materialized.put(row, entry.getValue());
+            }
+        }
+    }
+
+    private StudyMaterial material(int row) {
+        StudyMaterial material = materialized.get(row);
+        if (material == null) {
+            material = table.materialize(row);
+            materialized.put(row, material);
+        }
+        return material;
+    }
+
+    // Removed items are only materialized if a listener actually looks at them
+    private List<StudyMaterial> removedView(int[] oldRows, int oldSize) {
+        return new AbstractList<StudyMaterial>() {
+            @Override
+            public StudyMaterial get(int index) {
+                return material(oldRows[index]);
+            }
+
+            @Override
+            public int size() {
+                return oldSize;
+            }
+        };
+    }
+}
@@ -0,0 +1,289 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// Walks a directory tree on a ForkJoinPool: every directory is a task that lists its
+// entries and forks a task per subdirectory, and large directories split the attribute
+// reads of their entries across tasks too, so a flat folder of 100k files scales as well
+// as a deep tree. Each entry costs one readAttributes call (no separate isDirectory or
+// length stat), plus a second one for symbolic links, which are followed to files.
+// Files reach the consumer in batches through a bounded queue, on the calling thread,
+// while the walk is still going; a slow consumer makes the walkers wait instead of
+// piling up results. Stat-bound work like this is mostly
+// waiting on the disk or the network, so the pool has more threads than cores.
+class ParallelScanner {
+    private static final int BATCH_SIZE = 512;
+    private static final int QUEUE_BATCHES = 64;
+    // Entries per attribute-reading task in a large directory
+    private static final int SPLIT_ENTRIES = 1024;
+    private static final List<ScannedFile> END = new ArrayList<>(0);
+
+    private final int parallelism;
+
+    ParallelScanner() {
+        this(Math.min(32, Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+    }
+
+    ParallelScanner(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Per-file work that runs on the walker threads, e.g. reading the file's header; the
+    // result reaches the consumer with the file. Must be thread-safe.
+    interface Inspector<T> {
+        T inspect(Path file, BasicFileAttributes attrs);
+    }
+
+    interface Consumer<T> {
+        void accept(Path file, BasicFileAttributes attrs, T inspected);
+    }
+
+    // Regular files under root, and symbolic links to regular files, except those skip
+    // matches; a skipped or linked directory is not entered. Blocks until the walk is complete.
+    // Unreadable subdirectories are listed in the summary; an unreadable root throws.
+    public <T> ScanSummary scan(Path root, Predicate<Path> skip, Inspector<T> inspector, Consumer<T> consumer)
+            throws IOException {
+        long started = System.nanoTime();
+        BasicFileAttributes rootAttrs = Files.readAttributes(root, BasicFileAttributes.class,
+            LinkOption.NOFOLLOW_LINKS);
+        if (!rootAttrs.isDirectory()) {
+            throw new NotDirectoryException(root.toString());
+        }
+
+        Walk walk = new Walk(skip, inspector);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.execute(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        new DirectoryTask(walk, root, true).invoke();
+                    } finally {
+                        walk.finish();
+                    }
+                }
+            });
+            long files = 0;
+            long bytes = 0;
+            while (true) {
+                List<ScannedFile> batch = walk.results.take();
+                if (batch == END) {
+                    break;
+                }
+                for (ScannedFile file : batch) {
+                    @SuppressWarnings("unchecked") // Set by this scan's inspector
+                    T inspected = (T) file.inspected;
+                    consumer.accept(file.path, file.attrs, inspected);
+                    bytes += file.attrs.size();
+                }
+                files += batch.size();
+            }
+            if (walk.rootError != null) {
+                throw walk.rootError;
+            }
+            return new ScanSummary(files, walk.directories.get(), new ArrayList<>(walk.unreadable), bytes,
+                System.nanoTime() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Scan interrupted: " + root);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // State shared by the tasks of one scan
+    private static final class Walk {
+        final Predicate<Path> skip;
+        final Inspector<?> inspector;
+        final BlockingQueue<List<ScannedFile>> results = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        final AtomicInteger directories = new AtomicInteger();
+        final Queue<Path> unreadable = new ConcurrentLinkedQueue<>();
+        volatile IOException rootError;
+
+        Walk(Predicate<Path> skip, Inspector<?> inspector) {
+            this.skip = skip;
+            this.inspector = inspector;
+        }
+
+        void finish() {
+            publish(END);
+        }
+
+        void publish(List<ScannedFile> files) {
+            try {
+                // Waiting for the consumer blocks a pool thread; let the pool compensate
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    private boolean done;
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        results.put(files);
+                        done = true;
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return done;
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Walk walk;
+        private final Path directory;
+        private final boolean root;
+
+        DirectoryTask(Walk walk, Path directory, boolean root) {
+            this.walk = walk;
+            this.directory = directory;
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            walk.directories.incrementAndGet();
+            List<Path> entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    if (!walk.skip.test(entry)) {
+                        entries.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                if (root) {
+                    walk.rootError = e;
+                }
+                walk.unreadable.add(directory);
+                return;
+            }
+
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            for (int from = SPLIT_ENTRIES; from < entries.size(); from += SPLIT_ENTRIES) {
+                subtasks.add(new EntriesTask(walk, entries, from, Math.min(entries.size(), from + SPLIT_ENTRIES)));
+            }
+            for (RecursiveAction subtask : subtasks) {
+                subtask.fork();
+            }
+            new EntriesTask(walk, entries, 0, Math.min(entries.size(), SPLIT_ENTRIES)).compute();
+            for (RecursiveAction subtask : subtasks) {
+                subtask.join();
+            }
+        }
+    }
+
+    // Reads the attributes of entries[from, to): files go to the consumer, and each
+    // subdirectory is walked by a task of its own
+    private static final class EntriesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Walk walk;
+        private final List<Path> entries;
+        private final int from;
+        private final int to;
+
+        EntriesTask(Walk walk, List<Path> entries, int from, int to) {
+            this.walk = walk;
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            List<ScannedFile> batch = new ArrayList<>(Math.min(BATCH_SIZE, to - from));
+            for (int i = from; i < to; i++) {
+                Path entry = entries.get(i);
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isSymbolicLink()) {
+                        // Like LibraryCatalog.refresh(): a link to a file counts as that file.
+                        // Linked directories are not descended into, as with Files.walk.
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                        if (attrs.isDirectory()) {
+                            continue;
+                        }
+                    }
+                } catch (IOException e) {
+                    // Vanished while walking; the next reconcile settles it
+                    continue;
+                }
+                if (attrs.isDirectory()) {
+                    DirectoryTask task = new DirectoryTask(walk, entry, false);
+                    task.fork();
+                    subdirectories.add(task);
+                } else if (attrs.isRegularFile()) {
+                    batch.add(new ScannedFile(entry, attrs, walk.inspector.inspect(entry, attrs)));
+                    if (batch.size() == BATCH_SIZE) {
+                        walk.publish(batch);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                walk.publish(batch);
+            }
+            for (DirectoryTask task : subdirectories) {
+                task.join();
+            }
+        }
+    }
+
+    private static final class ScannedFile {
+        final Path path;
+        final BasicFileAttributes attrs;
+        final Object inspected;
+
+        ScannedFile(Path path, BasicFileAttributes attrs, Object inspected) {
+            this.path = path;
+            this.attrs = attrs;
+            this.inspected = inspected;
+        }
+    }
+
+    static final class ScanSummary {
+        final long files;
+        final int directories;
+        final int errors;
+        // Directories that could not be listed; what is below them is unknown, not gone
+        final List<Path> unreadable;
+        final long bytes;
+        final long elapsedNanos;
+
+        ScanSummary(long files, int directories, List<Path> unreadable, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.directories = directories;
+            this.errors = unreadable.size();
+            this.unreadable = unreadable;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double filesPerSecond() {
+            return elapsedNanos == 0 ? 0 : files / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Scanned %d files in %d folders (%d unreadable) • %.0f files/s",
+                files, directories, errors, filesPerSecond());
+        }
+    }
+}
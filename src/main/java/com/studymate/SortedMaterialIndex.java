@@ -0,0 +1,495 @@
+package com.studymate;
+
+import java.text.CollationKey;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.IntPredicate;
+
+// Keeps the library pre-sorted in every order offered by the Sort combo, so switching
+// the order or paging through results is a walk over an already sorted list.
+// Each order is an int array of MaterialTable rows kept sorted by binary-search
+// insertion; all comparators end with the file path, which makes the orders total and
+// lets removal find the exact row. A batch of new rows is sorted on its own and merged
+// in, so adding to a large library costs the batch, not the library. Only the default
+// order is kept from the start; the others are sorted on a background thread the first
+// time they are needed (see sortInBackground(); a name sort of a large library spends
+// seconds building collation keys) and maintained from then on.
+class SortedMaterialIndex {
+    enum Order {
+        NAME("Name"),
+        DATE_ADDED("Date Added"),
+        SIZE("Size"),
+        TYPE("Type");
+
+        private final String label;
+
+        Order(String label) {
+            this.label = label;
+        }
+
+        static Order fromLabel(String label) {
+            for (Order order : values()) {
+                if (order.label.equals(label)) {
+                    return order;
+                }
+            }
+            return DATE_ADDED;
+        }
+    }
+
+    interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    // Batches larger than this are sorted and merged in instead of inserted one by one
+    private static final int BULK_THRESHOLD = 64;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    private static final Order DEFAULT_ORDER = Order.DATE_ADDED;
+
+    // Type order: category ordinals ranked by label, case-insensitively
+    private static final int[] TYPE_RANKS = new int[Category.values().length];
+    static {
+        Category[] byLabel = Category.values();
+        Arrays.sort(byLabel, Comparator.comparing(Category::getLabel, String.CASE_INSENSITIVE_ORDER));
+        for (int rank = 0; rank < byLabel.length; rank++) {
+            TYPE_RANKS[byLabel[rank].ordinal()] = rank;
+        }
+    }
+
+    private final MaterialTable table;
+    private final EnumMap<Order, RowList> lists = new EnumMap<>(Order.class);
+    private final EnumMap<Order, RowComparator> comparators;
+    // Orders being sorted in the background, with the changes made since their snapshot
+    private final EnumMap<Order, Build> builds = new EnumMap<>(Order.class);
+
+    SortedMaterialIndex(MaterialTable table) {
+        this.table = table;
+        this.comparators = comparators(table);
+        lists.put(DEFAULT_ORDER, new RowList());
+    }
+
+    private static EnumMap<Order, RowComparator> comparators(MaterialTable table) {
+        EnumMap<Order, RowComparator> comparators = new EnumMap<>(Order.class);
+        comparators.put(Order.NAME, (a, b) -> {
+            int result = StudyMaterial.compareNames(table.getName(a), table.getName(b));
+            return result != 0 ? result : table.comparePaths(a, b);
+        });
+        comparators.put(Order.DATE_ADDED, (a, b) -> {
+            int result = Long.compare(table.getDateAdded(b), table.getDateAdded(a));
+            return result != 0 ? result : table.comparePaths(a, b);
+        });
+        comparators.put(Order.SIZE, (a, b) -> {
+            int result = Long.compare(table.getSize(a), table.getSize(b));
+            return result != 0 ? result : table.comparePaths(a, b);
+        });
+        comparators.put(Order.TYPE, (a, b) -> {
+            int result = Integer.compare(TYPE_RANKS[table.getCategory(a).ordinal()],
+                TYPE_RANKS[table.getCategory(b).ordinal()]);
+            return result != 0 ? result : table.comparePaths(a, b);
+        });
+        return comparators;
+    }
+
+    public RowComparator comparator(Order order) {
+        return comparators.get(order);
+    }
+
+    // Returns the position the row was inserted at in the reportFor order
+    public int add(int row, Order reportFor) {
+        int reported = -1;
+        for (Map.Entry<Order, RowList> entry : lists.entrySet()) {
+            RowList list = entry.getValue();
+            int position = binarySearch(list.rows, list.size, row, comparators.get(entry.getKey()));
+            if (position < 0) {
+                position = -position - 1;
+                list.insert(position, row);
+            }
+            if (entry.getKey() == reportFor) {
+                reported = position;
+            }
+        }
+        for (Build build : builds.values()) {
+            build.added(row);
+        }
+        return reported;
+    }
+
+    public void addAll(int[] rows, int count) {
+        if (count < BULK_THRESHOLD) {
+            for (int i = 0; i < count; i++) {
+                add(rows[i], null);
+            }
+            return;
+        }
+        for (Map.Entry<Order, RowList> entry : lists.entrySet()) {
+            insertAll(entry.getKey(), entry.getValue(), rows, count);
+        }
+        for (Build build : builds.values()) {
+            for (int i = 0; i < count; i++) {
+                build.added(rows[i]);
+            }
+        }
+    }
+
+    // Sorts the new rows on their own, then merges them into the list
+    private void insertAll(Order order, RowList list, int[] rows, int count) {
+        int[] sorted = Arrays.copyOf(rows, count);
+        sort(sorted, count, bulkComparator(order, table, sorted, count));
+        merge(list, sorted, count, comparators.get(order));
+    }
+
+    // Inserts rows[0, count), sorted by comparator, into list. Each row is searched for
+    // from the previous one's position, so m rows into n cost m log n comparisons and
+    // a single pass of moves from the back. Rows already in the list are skipped.
+    private static void merge(RowList list, int[] rows, int count, RowComparator comparator) {
+        int[] positions = new int[count];
+        int inserted = 0;
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int position = binarySearch(list.rows, from, list.size, rows[i], comparator);
+            if (position >= 0) {
+                continue;
+            }
+            from = -position - 1;
+            rows[inserted] = rows[i];
+            positions[inserted++] = from;
+        }
+        list.ensureCapacity(list.size + inserted);
+        // The i-th new row lands after the i new rows before it
+        int end = list.size;
+        for (int i = inserted - 1; i >= 0; i--) {
+            int position = positions[i];
+            System.arraycopy(list.rows, position, list.rows, position + i + 1, end - position);
+            list.rows[position + i] = rows[i];
+            end = position;
+        }
+        list.size += inserted;
+    }
+
+    // Returns the position the row had in the reportFor order, or -1 if absent.
+    // The row must still be readable in the table.
+    public int remove(int row, Order reportFor) {
+        int reported = -1;
+        for (Map.Entry<Order, RowList> entry : lists.entrySet()) {
+            RowList list = entry.getValue();
+            int position = binarySearch(list.rows, list.size, row, comparators.get(entry.getKey()));
+            if (position >= 0) {
+                list.delete(position);
+                if (entry.getKey() == reportFor) {
+                    reported = position;
+                }
+            }
+        }
+        for (Build build : builds.values()) {
+            build.removed(row);
+        }
+        return reported;
+    }
+
+    // Removing many rows is one pass per order, without comparisons
+    public void removeAll(BitSet rows) {
+        for (RowList list : lists.values()) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (!rows.get(list.rows[i])) {
+                    list.rows[kept++] = list.rows[i];
+                }
+            }
+            list.size = kept;
+        }
+        for (Build build : builds.values()) {
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                build.removed(row);
+            }
+        }
+    }
+
+    // Follows MaterialTable.compact(); renumbering keeps every order sorted
+    public void remap(int[] remap) {
+        for (RowList list : lists.values()) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int row = remap[list.rows[i]];
+                if (row >= 0) {
+                    list.rows[kept++] = row;
+                }
+            }
+            list.size = kept;
+        }
+        restartBuilds();
+    }
+
+    public void clear() {
+        lists.keySet().retainAll(Collections.singleton(DEFAULT_ORDER));
+        lists.get(DEFAULT_ORDER).rows = new int[0];
+        lists.get(DEFAULT_ORDER).size = 0;
+        restartBuilds();
+    }
+
+    // True once select() and page() can use the order without sorting first
+    public boolean isSorted(Order order) {
+        return lists.containsKey(order);
+    }
+
+    // Sorts the order from a snapshot of the table on worker, then installs it on owner
+    // (the thread that changes the index) and runs onSorted there. Rows added and removed
+    // meanwhile are applied when it is installed. If the rows are renumbered first, the
+    // sort starts over from a new snapshot.
+    public void sortInBackground(Order order, Executor worker, Executor owner, Runnable onSorted) {
+        Build build = builds.get(order);
+        if (isSorted(order)) {
+            onSorted.run();
+        } else if (build != null) {
+            build.onSorted.add(onSorted);
+        } else {
+            build = new Build(order, worker, owner);
+            build.onSorted.add(onSorted);
+            start(build);
+        }
+    }
+
+    private void start(Build build) {
+        builds.put(build.order, build);
+        MaterialTable snapshot = table.snapshot();
+        RowList source = lists.get(DEFAULT_ORDER);
+        int[] rows = Arrays.copyOf(source.rows, source.size);
+        build.worker.execute(() -> {
+            sort(rows, rows.length, bulkComparator(build.order, snapshot, rows, rows.length));
+            build.owner.execute(() -> install(build, rows));
+        });
+    }
+
+    private void install(Build build, int[] sortedRows) {
+        if (builds.get(build.order) != build) {
+            return; // Superseded by a restart
+        }
+        builds.remove(build.order);
+        RowList list = new RowList();
+        list.rows = sortedRows;
+        list.size = sortedRows.length;
+        if (!build.removedRows.isEmpty()) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (!build.removedRows.get(list.rows[i])) {
+                    list.rows[kept++] = list.rows[i];
+                }
+            }
+            list.size = kept;
+        }
+        int[] added = build.addedRows.stream().toArray();
+        insertAll(build.order, list, added, added.length);
+        lists.put(build.order, list);
+        for (Runnable onSorted : build.onSorted) {
+            onSorted.run();
+        }
+    }
+
+    // Row numbers in a running build's snapshot are no longer valid
+    private void restartBuilds() {
+        List<Build> running = new ArrayList<>(builds.values());
+        builds.clear();
+        for (Build build : running) {
+            Build restarted = new Build(build.order, build.worker, build.owner);
+            restarted.onSorted.addAll(build.onSorted);
+            start(restarted);
+        }
+    }
+
+    public int size() {
+        return lists.get(DEFAULT_ORDER).size;
+    }
+
+    // The rows that pass filter, in order; a null filter takes every row
+    public int[] select(Order order, IntPredicate filter) {
+        RowList list = sorted(order);
+        if (filter == null) {
+            return Arrays.copyOf(list.rows, list.size);
+        }
+        int[] selected = new int[Math.min(list.size, 1024)];
+        int count = 0;
+        for (int i = 0; i < list.size; i++) {
+            int row = list.rows[i];
+            if (filter.test(row)) {
+                if (count == selected.length) {
+                    selected = Arrays.copyOf(selected, Math.min(list.size, count * 2));
+                }
+                selected[count++] = row;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    // Collects up to limit matching rows after skipping offset matches
+    public int[] page(Order order, IntPredicate filter, int offset, int limit) {
+        RowList list = sorted(order);
+        int[] page = new int[Math.min(limit, 256)];
+        int count = 0;
+        int skipped = 0;
+        for (int i = 0; i < list.size && count < limit; i++) {
+            int row = list.rows[i];
+            if (filter != null && !filter.test(row)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (count == page.length) {
+                page = Arrays.copyOf(page, Math.min(limit, count * 2));
+            }
+            page[count++] = row;
+        }
+        return Arrays.copyOf(page, count);
+    }
+
+    // An order nobody sorted in the background is sorted here, on the calling thread
+    private RowList sorted(Order order) {
+        RowList list = lists.get(order);
+        if (list == null) {
+            RowList source = lists.get(DEFAULT_ORDER);
+            list = new RowList();
+            list.rows = Arrays.copyOf(source.rows, source.size);
+            list.size = source.size;
+            sort(list.rows, list.size, bulkComparator(order, table, list.rows, list.size));
+            lists.put(order, list);
+            builds.remove(order);
+        }
+        return list;
+    }
+
+    // Index of row in rows[0, size) sorted by comparator, or -(insertion point) - 1
+    static int binarySearch(int[] rows, int size, int row, RowComparator comparator) {
+        return binarySearch(rows, 0, size, row, comparator);
+    }
+
+    // The same within rows[from, size)
+    private static int binarySearch(int[] rows, int from, int size, int row, RowComparator comparator) {
+        int low = from;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = comparator.compare(rows[middle], row);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // A name sort compares every name many times, so collation keys are built once per
+    // row being sorted (rows[0, count)) instead of collating strings on every compare.
+    // The keys are indexed from the lowest row: a batch of new rows is a narrow range.
+    private static RowComparator bulkComparator(Order order, MaterialTable table, int[] rows, int count) {
+        if (order != Order.NAME) {
+            return comparators(table).get(order);
+        }
+        int lowest = Integer.MAX_VALUE;
+        int highest = -1;
+        for (int i = 0; i < count; i++) {
+            lowest = Math.min(lowest, rows[i]);
+            highest = Math.max(highest, rows[i]);
+        }
+        int base = lowest;
+        CollationKey[] keys = new CollationKey[Math.max(0, highest - lowest + 1)];
+        for (int i = 0; i < count; i++) {
+            keys[rows[i] - base] = StudyMaterial.collationKey(table.getName(rows[i]));
+        }
+        return (a, b) -> {
+            int result = keys[a - base].compareTo(keys[b - base]);
+            return result != 0 ? result : table.comparePaths(a, b);
+        };
+    }
+
+    private static void sort(int[] rows, int size, RowComparator comparator) {
+        mergeSort(rows, Arrays.copyOf(rows, size), 0, size, comparator);
+    }
+
+    // Sorts rows[from, to) using buffer, which holds the same elements on entry
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // Sort each half of buffer (using rows as scratch), then merge them into rows
+        mergeSort(buffer, rows, from, middle, comparator);
+        mergeSort(buffer, rows, middle, to, comparator);
+        if (comparator.compare(buffer[middle - 1], buffer[middle]) <= 0) {
+            System.arraycopy(buffer, from, rows, from, to - from);
+            return;
+        }
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    // An order being sorted in the background. Touched on the owner thread only, except
+    // for order, worker and owner.
+    private static final class Build {
+        final Order order;
+        final Executor worker;
+        final Executor owner;
+        final List<Runnable> onSorted = new ArrayList<>();
+        final BitSet addedRows = new BitSet();
+        final BitSet removedRows = new BitSet();
+
+        Build(Order order, Executor worker, Executor owner) {
+            this.order = order;
+            this.worker = worker;
+            this.owner = owner;
+        }
+
+        void added(int row) {
+            addedRows.set(row);
+        }
+
+        // A row added since the snapshot is simply forgotten
+        void removed(int row) {
+            if (addedRows.get(row)) {
+                addedRows.clear(row);
+            } else {
+                removedRows.set(row);
+            }
+        }
+    }
+
+    // Growable int array of rows
+    private static final class RowList {
+        int[] rows = new int[0];
+        int size;
+
+        void ensureCapacity(int capacity) {
+            if (capacity > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(capacity, rows.length + rows.length / 2));
+            }
+        }
+
+        void insert(int position, int row) {
+            ensureCapacity(size + 1);
+            System.arraycopy(rows, position, rows, position + 1, size - position);
+            rows[position] = row;
+            size++;
+        }
+
+        void delete(int position) {
+            System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.studymate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.LongFunction;
+
+// Study time rolled up as sessions end: totals per material and per category, per-category
+// minutes for each of the last DAY_HISTORY days and for every week. Queries only read the
+// rollups, so their cost depends on the window asked for and never on how many sessions
+// were recorded. A session counts towards the day and week it started in; its category
+// is the one the catalog has for the material, or comes from the file name for sessions
+// whose material is not (or no longer) catalogued.
+// Materials are keyed by id so their time follows them through moves and renames;
+// sessions recorded before materials had ids are keyed by name instead.
+class StudyAnalytics {
+    static final int DAY_HISTORY = 366;
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final Comparator<MaterialTime> RANKING = (a, b) -> {
+        int result = Long.compare(b.minutes, a.minutes);
+        if (result == 0) {
+            result = Long.compare(a.materialId, b.materialId);
+        }
+        return result != 0 ? result : a.material.compareTo(b.material);
+    };
+
+    // The catalogued category of a material id, or null if unknown
+    private final LongFunction<Category> categories;
+    private final Map<Long, MaterialTime> materials = new HashMap<>();
+    private final Map<String, MaterialTime> unlinked = new HashMap<>();
+    private final TreeSet<MaterialTime> ranking = new TreeSet<>(RANKING);
+    private final long[] categoryMinutes = new long[CATEGORIES.length];
+    // Ring of day buckets: slot epochDay % DAY_HISTORY holds dayMinutes for slotDays[slot]
+    private final long[][] dayMinutes = new long[DAY_HISTORY][CATEGORIES.length];
+    private final long[] slotDays = new long[DAY_HISTORY];
+    // Keyed by the epoch day of the week's Monday
+    private final Map<Long, long[]> weekMinutes = new HashMap<>();
+    private long totalMinutes;
+    private int sessionCount;
+
+    StudyAnalytics(LongFunction<Category> categories) {
+        this.categories = categories;
+        Arrays.fill(slotDays, Long.MIN_VALUE);
+    }
+
+    // Adds an ended session; sessions that are still running are ignored
+    public synchronized void record(StudySession session) {
+        if (session.getEndTime() == null) {
+            return;
+        }
+        String material = session.getMaterialName();
+        long materialId = session.getMaterialId();
+        Category category = materialId != 0 ? categories.apply(materialId) : null;
+        if (category == null) {
+            category = Category.forFileName(material);
+        }
+        long minutes = session.getDurationMinutes();
+        LocalDateTime started = session.getStartTime();
+
+        MaterialTime time = materialId != 0 ? materials.get(materialId) : unlinked.get(material);
+        if (time == null) {
+            time = new MaterialTime(materialId, material, category);
+            if (materialId != 0) {
+                materials.put(materialId, time);
+            } else {
+                unlinked.put(material, time);
+            }
+        } else {
+            ranking.remove(time);
+        }
+        time.minutes += minutes;
+        time.sessions++;
+        if (time.lastStudied == null || started.isAfter(time.lastStudied)) {
+            time.lastStudied = started;
+            time.material = material;
+        }
+        ranking.add(time);
+
+        int index = category.ordinal();
+        categoryMinutes[index] += minutes;
+        totalMinutes += minutes;
+        sessionCount++;
+
+        long day = started.toLocalDate().toEpochDay();
+        int slot = (int) Math.floorMod(day, (long) DAY_HISTORY);
+        if (slotDays[slot] < day) {
+            slotDays[slot] = day;
+            Arrays.fill(dayMinutes[slot], 0);
+        }
+        if (slotDays[slot] == day) {
+            dayMinutes[slot][index] += minutes;
+        }
+        weekMinutes.computeIfAbsent(weekStart(started.toLocalDate()), w -> new long[CATEGORIES.length])[index] += minutes;
+    }
+
+    // Minutes per category (indexed by ordinal) over the days (today - days, today]
+    public synchronized long[] minutesByCategory(LocalDate today, int days) {
+        if (days < 1 || days > DAY_HISTORY) {
+            throw new IllegalArgumentException("days must be between 1 and " + DAY_HISTORY + ": " + days);
+        }
+        long[] result = new long[CATEGORIES.length];
+        long last = today.toEpochDay();
+        for (long day = last - days + 1; day <= last; day++) {
+            int slot = (int) Math.floorMod(day, (long) DAY_HISTORY);
+            if (slotDays[slot] == day) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] += dayMinutes[slot][i];
+                }
+            }
+        }
+        return result;
+    }
+
+    // Minutes per category in the Monday-to-Sunday week containing day
+    public synchronized long[] weekByCategory(LocalDate day) {
+        long[] minutes = weekMinutes.get(weekStart(day));
+        return minutes != null ? minutes.clone() : new long[CATEGORIES.length];
+    }
+
+    public synchronized long weekTotal(LocalDate day) {
+        long total = 0;
+        for (long minutes : weekByCategory(day)) {
+            total += minutes;
+        }
+        return total;
+    }
+
+    // The limit materials with the most study time, most studied first
+    public synchronized List<MaterialTime> topMaterials(int limit) {
+        List<MaterialTime> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (MaterialTime time : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(time.copy());
+        }
+        return top;
+    }
+
+    public synchronized MaterialTime getMaterial(long materialId) {
+        MaterialTime time = materials.get(materialId);
+        return time != null ? time.copy() : null;
+    }
+
+    public synchronized long getCategoryMinutes(Category category) {
+        return categoryMinutes[category.ordinal()];
+    }
+
+    public synchronized long getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    public synchronized int getSessionCount() {
+        return sessionCount;
+    }
+
+    public synchronized int getMaterialCount() {
+        return materials.size() + unlinked.size();
+    }
+
+    private static long weekStart(LocalDate day) {
+        return day.toEpochDay() - (day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+    }
+
+    static String formatMinutes(long minutes) {
+        return minutes < 60 ? minutes + " min" : minutes / 60 + "h " + minutes % 60 + "m";
+    }
+
+    // Study time for one material; instances handed out are copies. material is the name
+    // the material was last studied under.
+    static final class MaterialTime {
+        final long materialId;
+        final Category category;
+        String material;
+        long minutes;
+        int sessions;
+        LocalDateTime lastStudied;
+
+        MaterialTime(long materialId, String material, Category category) {
+            this.materialId = materialId;
+            this.material = material;
+            this.category = category;
+        }
+
+        MaterialTime copy() {
+            MaterialTime copy = new MaterialTime(materialId, material, category);
+            copy.minutes = minutes;
+            copy.sessions = sessions;
+            copy.lastStudied = lastStudied;
+            return copy;
+        }
+
+        public long getMaterialId() {
+            return materialId;
+        }
+
+        public String getMaterial() {
+            return material;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public long getMinutes() {
+            return minutes;
+        }
+
+        public int getSessions() {
+            return sessions;
+        }
+
+        public LocalDateTime getLastStudied() {
+            return lastStudied;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.studymate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Study Material Model Class
+class StudyMaterial {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    
+    // Stable id assigned by the LibraryCatalog; it survives moves and renames, so notes,
+    // bookmarks and sessions refer to it rather than to the path. 0 until catalogued.
+    private final long id;
+    private final File file;
+    private final String name;
+    private final Category category;
+    private long size;
+    private long dateAddedMillis;
+    private volatile boolean attributesLoaded;
+    private String formattedSize;
+    private String formattedDate;
+    private String details;
+    
+    // Collator is not thread-safe; it is only used under its lock
+    private static final Collator NAME_COLLATOR = Collator.getInstance();
+    static {
+        NAME_COLLATOR.setStrength(Collator.SECONDARY);
+    }
+    
+    // Size and date added are read from the file system the first time they are needed
+    public StudyMaterial(File file) {
+        this.id = 0;
+        this.file = file;
+        this.name = file.getName();
+        this.category = Category.forFileName(name);
+    }
+    
+    // Used when the attributes are already known, e.g. from the catalog or an import
+    public StudyMaterial(File file, long size, Category category, long dateAddedMillis) {
+        this(0, file, size, category, dateAddedMillis);
+    }
+    
+    StudyMaterial(long id, File file, long size, Category category, long dateAddedMillis) {
+        this.id = id;
+        this.file = file;
+        this.name = file.getName();
+        this.category = category;
+        this.size = size;
+        this.dateAddedMillis = dateAddedMillis;
+        this.attributesLoaded = true;
+    }
+    
+    // Same material at a new location, e.g. after Auto Organize moved it
+    public StudyMaterial withFile(File newFile) {
+        return new StudyMaterial(id, newFile, getSize(), category, getDateAddedMillis());
+    }
+    
+    StudyMaterial withId(long newId) {
+        return new StudyMaterial(newId, file, getSize(), category, getDateAddedMillis());
+    }
+    
+    // One bulk stat for all attributes; the file's creation time stands in for the date added
+    private void loadAttributes() {
+        if (attributesLoaded) {
+            return;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            size = attrs.size();
+            dateAddedMillis = attrs.creationTime().toMillis();
+        } catch (IOException e) {
+            size = 0;
+            dateAddedMillis = System.currentTimeMillis();
+        }
+        attributesLoaded = true;
+    }
+    
+    // Getters
+    public long getId() { return id; }
+    public File getFile() { return file; }
+    public String getName() { return name; }
+    public Category getCategory() { return category; }
+    
+    public long getSize() {
+        loadAttributes();
+        return size;
+    }
+    
+    public long getDateAddedMillis() {
+        loadAttributes();
+        return dateAddedMillis;
+    }
+    
+    public LocalDateTime getDateAdded() {
+        return LibraryCatalog.fromEpochMillis(getDateAddedMillis());
+    }
+    
+    // Name order of the Sort combo
+    static int compareNames(String a, String b) {
+        synchronized (NAME_COLLATOR) {
+            return NAME_COLLATOR.compare(a, b);
+        }
+    }
+    
+    static CollationKey collationKey(String name) {
+        synchronized (NAME_COLLATOR) {
+            return NAME_COLLATOR.getCollationKey(name);
+        }
+    }
+    
+    // Display strings are built once per material, not on every cell render
+    public String getFormattedSize() {
+        if (formattedSize == null) {
+            formattedSize = OrganizePlan.formatBytes(getSize());
+        }
+        return formattedSize;
+    }
+    
+    public String getFormattedDate() {
+        if (formattedDate == null) {
+            formattedDate = getDateAdded().format(DATE_FORMAT);
+        }
+        return formattedDate;
+    }
+    
+    public String getDetails() {
+        if (details == null) {
+            details = category.getLabel() + " • " + getFormattedSize() + " • Added " + getFormattedDate();
+        }
+        return details;
+    }
+    
+    // Catalogued materials compare by id; only materials without one fall back to the path
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        StudyMaterial that = (StudyMaterial) obj;
+        return id == that.id && (id != 0 || file.equals(that.file));
+    }
+    
+    @Override
+    public int hashCode() {
+        return id != 0 ? Long.hashCode(id) : file.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,164 @@
+package com.studymate;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+import java.util.function.Consumer;
+
+// Custom ListView Cell for Study Materials
+class StudyMaterialCell extends ListCell<StudyMaterial> {
+    private HBox content;
+    private VBox textContent;
+    private Label nameLabel;
+    private Label detailsLabel;
+    private Label categoryLabel;
+    private Button actionButton;
+    private Button deleteButton;
+    private final ImageView thumbnailView = new ImageView();
+    private final Consumer<StudyMaterial> onOpen;
+    private final Consumer<StudyMaterial> onDelete;
+    private final ThumbnailCache thumbnails;
+    private ThumbnailCache.Request pendingThumbnail;
+    
+    // onOpen and onDelete do the work; onDelete is called once the user confirmed
+    public StudyMaterialCell(Consumer<StudyMaterial> onOpen, Consumer<StudyMaterial> onDelete,
+                             ThumbnailCache thumbnails) {
+        super();
+        this.onOpen = onOpen;
+        this.onDelete = onDelete;
+        this.thumbnails = thumbnails;
+        createLayout();
+    }
+    
+    private void createLayout() {
+        content = new HBox(15);
+        content.setPadding(new Insets(12));
+        content.setAlignment(Pos.CENTER_LEFT);
+        content.setStyle("-fx-background-color: white; -fx-background-radius: 8; " +
+                        "-fx-border-color: #ecf0f1; -fx-border-radius: 8; -fx-border-width: 1;");
+        
+        // Icon/Category indicator
+        categoryLabel = new Label();
+        categoryLabel.setFont(Font.font(24));
+        categoryLabel.setMinWidth(40);
+        categoryLabel.setAlignment(Pos.CENTER);
+        thumbnailView.setFitWidth(40);
+        thumbnailView.setFitHeight(40);
+        thumbnailView.setPreserveRatio(true);
+        thumbnailView.setSmooth(true);
+        
+        // Text content
+        textContent = new VBox(4);
+        nameLabel = new Label();
+        nameLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
+        nameLabel.setTextFill(Color.web("#2c3e50"));
+        
+        detailsLabel = new Label();
+        detailsLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 11));
+        detailsLabel.setTextFill(Color.web("#7f8c8d"));
+        
+        textContent.getChildren().addAll(nameLabel, detailsLabel);
+        
+        // Spacer
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        
+        // Action buttons
+        actionButton = new Button("📖 Open");
+        actionButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; " +
+                             "-fx-font-size: 11; -fx-padding: 6 12; -fx-background-radius: 4;");
+        
+        deleteButton = new Button("🗑️");
+        deleteButton.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; " +
+                             "-fx-font-size: 11; -fx-padding: 6 8; -fx-background-radius: 4;");
+        
+        HBox buttonBox = new HBox(6);
+        buttonBox.getChildren().addAll(actionButton, deleteButton);
+        
+        content.getChildren().addAll(categoryLabel, textContent, spacer, buttonBox);
+        
+        // Hover effects
+        content.setOnMouseEntered(e -> {
+            content.setStyle(content.getStyle() + 
+                "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 10, 0, 0, 2);");
+            content.setScaleX(1.02);
+            content.setScaleY(1.02);
+        });
+        
+        content.setOnMouseExited(e -> {
+            content.setStyle(content.getStyle().replaceAll(
+                "-fx-effect: dropshadow\\(three-pass-box, rgba\\(0,0,0,0\\.1\\), 10, 0, 0, 2\\);", ""));
+            content.setScaleX(1.0);
+            content.setScaleY(1.0);
+        });
+    }
+    
+    @Override
+    protected void updateItem(StudyMaterial material, boolean empty) {
+        StudyMaterial previous = getItem();
+        super.updateItem(material, empty);
+        
+        // A reused cell no longer needs the thumbnail it asked for
+        if (pendingThumbnail != null && (empty || material != previous)) {
+            pendingThumbnail.cancel();
+            pendingThumbnail = null;
+        }
+        
+        if (empty || material == null) {
+            setGraphic(null);
+        } else {
+            // Update content
+            showThumbnail(material);
+            nameLabel.setText(material.getName());
+            detailsLabel.setText(material.getDetails());
+            
+            // Set up button actions
+            actionButton.setOnAction(e -> onOpen.accept(material));
+            
+            deleteButton.setOnAction(e -> {
+                Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+                confirm.setTitle("Delete Material");
+                confirm.setHeaderText("Delete " + material.getName() + "?");
+                confirm.setContentText("This will permanently delete the file from your study directory.");
+                
+                if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
+                    onDelete.accept(material);
+                }
+            });
+            
+            setGraphic(content);
+        }
+    }
+    
+    // Shows the cached preview right away, otherwise the category icon until it is rendered
+    private void showThumbnail(StudyMaterial material) {
+        Image cached = ThumbnailCache.supports(material.getCategory()) ? thumbnails.getIfCached(material.getFile()) : null;
+        if (cached != null) {
+            setThumbnail(cached);
+            return;
+        }
+        categoryLabel.setGraphic(null);
+        categoryLabel.setText(material.getCategory().getIcon());
+        if (ThumbnailCache.supports(material.getCategory()) && pendingThumbnail == null) {
+            pendingThumbnail = thumbnails.load(material, image -> {
+                pendingThumbnail = null;
+                if (getItem() == material) {
+                    setThumbnail(image);
+                }
+            });
+        }
+    }
+    
+    private void setThumbnail(Image image) {
+        thumbnailView.setImage(image);
+        categoryLabel.setText(null);
+        categoryLabel.setGraphic(thumbnailView);
+    }
+}
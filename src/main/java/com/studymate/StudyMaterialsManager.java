@@ -2,13 +2,13 @@ package com.studymate;
 
 // Main Application Class
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.animation.PauseTransition;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.effect.DropShadow;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -16,8 +16,12 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.util.Duration;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.DragEvent;
 import javafx.scene.input.Dragboard;
@@ -25,9 +29,12 @@ import javafx.scene.input.TransferMode;
 
 import java.io.*;
 import java.nio.file.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
 import java.util.prefs.Preferences;
 
 public class StudyMaterialsManager extends Application {
@@ -36,6 +43,7 @@ public class StudyMaterialsManager extends Application {
     private Preferences userPrefs = Preferences.userNodeForPackage(StudyMaterialsManager.class);
     private String currentTheme = "Light";
     private String userName = "Student";
+    private final IntegerProperty weeklyGoalHours = new SimpleIntegerProperty(10);
     
     // Main components
     private Stage primaryStage;
@@ -43,14 +51,52 @@ public class StudyMaterialsManager extends Application {
     private VBox sidePanel;
     private VBox contentArea;
     private ListView<StudyMaterial> materialsListView;
-    private ObservableList<StudyMaterial> studyMaterials;
+    private final MaterialTable materials = new MaterialTable();
+    private final PagedMaterialList visibleMaterials = new PagedMaterialList(materials);
     private Label welcomeLabel;
     private ProgressBar studyProgress;
     private Label statsLabel;
     
     // File management
     private Path studyDirectory;
-    private Map<String, Integer> categoryStats = new HashMap<>();
+    private final LibraryStats libraryStats = new LibraryStats();
+    private final Map<Category, IntegerProperty> categoryCounts = new EnumMap<>(Category.class);
+    private final Map<Category, LongProperty> categoryBytes = new EnumMap<>(Category.class);
+    private final IntegerProperty totalMaterials = new SimpleIntegerProperty();
+    
+    // Study time
+    private static final int STUDY_WINDOW_DAYS = 90;
+    private final LongProperty weekStudyMinutes = new SimpleLongProperty();
+    private final Map<Category, LongProperty> categoryStudyMinutes = new EnumMap<>(Category.class);
+    private VBox topStudiedBox;
+    private VBox activeSessionBox;
+    private Label activeSessionLabel;
+    private StudySession activeSession;
+    private LibraryService library;
+    private LibraryWatcher watcher;
+    private final ThumbnailCache thumbnailCache = new ThumbnailCache(
+        Paths.get(System.getProperty("user.home"), ".studymate", "thumbnails"));
+    private ImportEngine.ImportTask activeImport;
+    private final UiTaskExecutor tasks = new UiTaskExecutor();
+    private MetricsServer metricsServer;
+    
+    // Search state
+    private final MaterialSearch materialSearch = new MaterialSearch();
+    private PauseTransition searchDebounce;
+    private String searchText = "";
+    private long searchTypedNanos; // when searchText last changed, for the keystroke latency
+    private Category categoryFilter; // null shows all categories
+    private MaterialSearch.Result searchResult;
+    private IntPredicate visibleFilter; // null shows every row
+    private long libraryVersion;
+    private final SortedMaterialIndex sortedIndex = new SortedMaterialIndex(materials);
+    private SortedMaterialIndex.Order sortOrder = SortedMaterialIndex.Order.DATE_ADDED;
+    private SortedMaterialIndex.Order requestedSortOrder = sortOrder; // may still be sorting
+    private final ExecutorService libraryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     @Override
     public void start(Stage primaryStage) {
@@ -58,12 +104,12 @@ public class StudyMaterialsManager extends Application {
         loadUserPreferences();
         initializeStudyDirectory();
         
-        studyMaterials = FXCollections.observableArrayList();
-        materialsListView = new ListView<>(studyMaterials);
+        searchDebounce = new PauseTransition(Duration.millis(150));
+        searchDebounce.setOnFinished(e -> runSearch());
+        materialsListView = new ListView<>(visibleMaterials);
         
         setupMainLayout();
         loadExistingMaterials();
-        updateStats();
         
         Scene scene = new Scene(mainLayout, 1200, 800);
         applyTheme(scene);
@@ -74,6 +120,31 @@ public class StudyMaterialsManager extends Application {
         
         // Set up auto-save
         primaryStage.setOnCloseRequest(e -> saveUserPreferences());
+        
+        try {
+            metricsServer = MetricsServer.startIfConfigured();
+        } catch (IOException | NumberFormatException e) {
+            Metrics.global().error("metrics", String.valueOf(e));
+            showAlert("Error", "Cannot start the metrics endpoint: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void stop() {
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        stopWatcher();
+        closeLibrary();
+        thumbnailCache.shutdown();
+        tasks.shutdown();
+        // Give the catalog and index a moment to be written before the JVM exits
+        libraryExecutor.shutdown();
+        try {
+            libraryExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     
     private void setupMainLayout() {
@@ -153,7 +224,9 @@ public class StudyMaterialsManager extends Application {
         categoriesLabel.setTextFill(Color.WHITE);
         
         VBox categoriesBox = new VBox(8);
-        updateCategoriesDisplay(categoriesBox);
+        for (Category category : Category.values()) {
+            categoriesBox.getChildren().add(createCategoryRow(category));
+        }
         
         // Progress section
         Label progressLabel = new Label("📈 Study Progress");
@@ -163,19 +236,174 @@ public class StudyMaterialsManager extends Application {
         studyProgress = new ProgressBar(0.0);
         studyProgress.setPrefWidth(240);
         studyProgress.setStyle("-fx-accent: #27ae60;");
-        
-        statsLabel = new Label("0 materials added");
+        // Share of the weekly study goal reached so far this week
+        studyProgress.progressProperty().bind(Bindings.createDoubleBinding(
+            () -> Math.min(weekStudyMinutes.get() / (weeklyGoalHours.get() * 60.0), 1.0),
+            weekStudyMinutes, weeklyGoalHours));
+        
+        Label weekLabel = new Label();
+        weekLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
+        weekLabel.setTextFill(Color.web("#ecf0f1"));
+        weekLabel.textProperty().bind(Bindings.createStringBinding(
+            () -> StudyAnalytics.formatMinutes(weekStudyMinutes.get()) + " of " + weeklyGoalHours.get() + "h this week",
+            weekStudyMinutes, weeklyGoalHours));
+        
+        statsLabel = new Label();
         statsLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
         statsLabel.setTextFill(Color.web("#ecf0f1"));
+        statsLabel.textProperty().bind(Bindings.format("%d materials in library", totalMaterials));
+        
+        Label studyTimeLabel = new Label("Last " + STUDY_WINDOW_DAYS + " days");
+        studyTimeLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 12));
+        studyTimeLabel.setTextFill(Color.web("#bdc3c7"));
+        
+        VBox studyTimeBox = new VBox(4);
+        for (Category category : Category.values()) {
+            studyTimeBox.getChildren().add(createStudyTimeRow(category));
+        }
+        
+        topStudiedBox = new VBox(4);
+        
+        createActiveSessionBox();
         
         sidePanel.getChildren().addAll(
-            actionsLabel, addFileBtn, addFolderBtn, organizeBtn,
+            actionsLabel, addFileBtn, addFolderBtn, organizeBtn, new TaskPanel(tasks),
             new Separator(), categoriesLabel, categoriesBox,
-            new Separator(), progressLabel, studyProgress, statsLabel
+            new Separator(), progressLabel, activeSessionBox, studyProgress, weekLabel, statsLabel,
+            studyTimeLabel, studyTimeBox, topStudiedBox
         );
+    }
+    
+    // Minutes studied in one category over the study window; hidden while zero
+    private HBox createStudyTimeRow(Category category) {
+        LongProperty minutes = categoryStudyMinutes.computeIfAbsent(category, c -> new SimpleLongProperty());
+        
+        HBox row = new HBox(10);
+        row.setAlignment(Pos.CENTER_LEFT);
+        row.visibleProperty().bind(minutes.greaterThan(0));
+        row.managedProperty().bind(row.visibleProperty());
+        
+        Label categoryLabel = new Label(category.getIcon() + " " + category.getLabel());
+        categoryLabel.setTextFill(Color.web("#ecf0f1"));
+        categoryLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
+        
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        
+        Label minutesLabel = new Label();
+        minutesLabel.textProperty().bind(Bindings.createStringBinding(
+            () -> StudyAnalytics.formatMinutes(minutes.get()), minutes));
+        minutesLabel.setTextFill(Color.web("#bdc3c7"));
+        minutesLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 12));
         
-        // Store reference to categories box for easy access
-        sidePanel.setUserData(categoriesBox);
+        row.getChildren().addAll(categoryLabel, spacer, minutesLabel);
+        return row;
+    }
+    
+    private void createActiveSessionBox() {
+        activeSessionLabel = new Label();
+        activeSessionLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
+        activeSessionLabel.setTextFill(Color.web("#ecf0f1"));
+        activeSessionLabel.setWrapText(true);
+        activeSessionLabel.setMaxWidth(240);
+        
+        Button endSessionBtn = createSideButton("⏹ End Session", "#8e44ad");
+        endSessionBtn.setOnAction(e -> endStudySession());
+        
+        activeSessionBox = new VBox(6, activeSessionLabel, endSessionBtn);
+        activeSessionBox.setVisible(false);
+        activeSessionBox.setManaged(false);
+    }
+    
+    // Reads the rollups, so this costs the same however long the study history is
+    private void refreshStudyTime() {
+        if (library == null) {
+            return;
+        }
+        StudyAnalytics analytics = library.getAnalytics();
+        LocalDate today = LocalDate.now();
+        weekStudyMinutes.set(analytics.weekTotal(today));
+        long[] minutes = analytics.minutesByCategory(today, STUDY_WINDOW_DAYS);
+        for (Category category : Category.values()) {
+            categoryStudyMinutes.get(category).set(minutes[category.ordinal()]);
+        }
+        
+        topStudiedBox.getChildren().clear();
+        for (StudyAnalytics.MaterialTime time : analytics.topMaterials(3)) {
+            // Show the material under its current name if it was renamed since
+            StudyMaterial material = library.material(time.getMaterialId());
+            String name = material != null ? material.getName() : Paths.get(time.getMaterial()).getFileName().toString();
+            Label label = new Label(time.getCategory().getIcon() + " " +
+                name + " · " + StudyAnalytics.formatMinutes(time.getMinutes()));
+            label.setTextFill(Color.web("#95a5a6"));
+            label.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 11));
+            label.setMaxWidth(240);
+            topStudiedBox.getChildren().add(label);
+        }
+    }
+    
+    // A session runs from opening a material until another one is opened, the session
+    // is ended from the side panel, or the library is closed
+    private void startStudySession(StudyMaterial material) {
+        endStudySession();
+        activeSession = library.startSession(material);
+        activeSessionLabel.setText("Studying " + material.getName());
+        activeSessionBox.setVisible(true);
+        activeSessionBox.setManaged(true);
+    }
+    
+    private void endStudySession() {
+        if (activeSession == null) {
+            return;
+        }
+        // Ended now, saved on the library thread: the records may still be opening there
+        StudySession session = activeSession;
+        LibraryService target = library;
+        session.endSession();
+        libraryExecutor.submit(() -> {
+            target.endSession(session);
+            Platform.runLater(() -> {
+                if (target == library) {
+                    refreshStudyTime();
+                }
+            });
+        });
+        activeSession = null;
+        activeSessionBox.setVisible(false);
+        activeSessionBox.setManaged(false);
+    }
+    
+    // One row per category, created once and bound to that category's counters; a row
+    // is hidden while its category is empty
+    private HBox createCategoryRow(Category category) {
+        IntegerProperty count = categoryCounts.computeIfAbsent(category, c -> new SimpleIntegerProperty());
+        LongProperty bytes = categoryBytes.computeIfAbsent(category, c -> new SimpleLongProperty());
+        
+        HBox categoryItem = new HBox(10);
+        categoryItem.setAlignment(Pos.CENTER_LEFT);
+        categoryItem.visibleProperty().bind(count.greaterThan(0));
+        categoryItem.managedProperty().bind(categoryItem.visibleProperty());
+        
+        Label categoryLabel = new Label(category.getIcon() + " " + category.getLabel());
+        categoryLabel.setTextFill(Color.web("#ecf0f1"));
+        categoryLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
+        
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        
+        Label bytesLabel = new Label();
+        bytesLabel.textProperty().bind(Bindings.createStringBinding(
+            () -> OrganizePlan.formatBytes(bytes.get()), bytes));
+        bytesLabel.setTextFill(Color.web("#95a5a6"));
+        bytesLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 11));
+        
+        Label countLabel = new Label();
+        countLabel.textProperty().bind(count.asString());
+        countLabel.setTextFill(Color.web("#bdc3c7"));
+        countLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 12));
+        
+        categoryItem.getChildren().addAll(categoryLabel, spacer, bytesLabel, countLabel);
+        return categoryItem;
     }
     
     private void createContentArea() {
@@ -194,7 +422,7 @@ public class StudyMaterialsManager extends Application {
         contentArea.getChildren().addAll(searchBar, materialsListView);
         
         // Show empty state if no materials
-        if (studyMaterials.isEmpty()) {
+        if (materials.size() == 0) {
             contentArea.getChildren().clear();
             contentArea.getChildren().addAll(searchBar, emptyState);
         }
@@ -220,27 +448,33 @@ public class StudyMaterialsManager extends Application {
         sortCombo.setValue("Date Added");
         sortCombo.setStyle("-fx-font-size: 14;");
         
-        // Search functionality
+        // A new search bar starts with a fresh query
+        searchText = "";
+        categoryFilter = null;
+        searchResult = null;
+        materialSearch.cancel();
+        applyFilterPredicate();
+        applySortOrder(sortCombo.getValue());
+        
+        // Search functionality (debounced, runs off the FX thread)
         searchField.textProperty().addListener((obs, oldText, newText) -> {
-            filterMaterials(newText, filterCombo.getValue(), sortCombo.getValue());
+            searchText = newText;
+            searchTypedNanos = System.nanoTime();
+            searchDebounce.playFromStart();
         });
         
         filterCombo.setOnAction(e -> {
-            filterMaterials(searchField.getText(), filterCombo.getValue(), sortCombo.getValue());
+            categoryFilter = Category.fromLabel(filterCombo.getValue());
+            applyFilterPredicate();
         });
         
-        sortCombo.setOnAction(e -> {
-            filterMaterials(searchField.getText(), filterCombo.getValue(), sortCombo.getValue());
-        });
+        sortCombo.setOnAction(e -> applySortOrder(sortCombo.getValue()));
         
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
         Button refreshBtn = createStyledButton("🔄 Refresh", "#3498db");
-        refreshBtn.setOnAction(e -> {
-            loadExistingMaterials();
-            updateStats();
-        });
+        refreshBtn.setOnAction(e -> reconcileCatalog());
         
         searchBar.getChildren().addAll(
             new Label("Search:"), searchField,
@@ -254,7 +488,8 @@ public class StudyMaterialsManager extends Application {
     
     private void setupMaterialsList() {
         materialsListView.setPrefHeight(500);
-        materialsListView.setCellFactory(lv -> new StudyMaterialCell());
+        materialsListView.setCellFactory(lv -> new StudyMaterialCell(
+            material -> openFile(material, () -> { }), this::deleteMaterial, thumbnailCache));
         materialsListView.setStyle("-fx-background-color: transparent;");
         
         // Double click to open
@@ -305,12 +540,8 @@ public class StudyMaterialsManager extends Application {
             Dragboard db = event.getDragboard();
             boolean success = false;
             if (db.hasFiles()) {
-                for (File file : db.getFiles()) {
-                    addStudyMaterial(file);
-                }
+                startImport(db.getFiles());
                 success = true;
-                updateStats();
-                refreshContentArea();
             }
             event.setDropCompleted(success);
             event.consume();
@@ -362,16 +593,12 @@ public class StudyMaterialsManager extends Application {
             new FileChooser.ExtensionFilter("PDF Files", "*.pdf"),
             new FileChooser.ExtensionFilter("Images", "*.png", "*.jpg", "*.jpeg", "*.gif"),
             new FileChooser.ExtensionFilter("Documents", "*.doc", "*.docx", "*.txt"),
-            new FileChooser.ExtensionFilter("Videos", "*.mp4", "*.avi", "*.mov")
+            new FileChooser.ExtensionFilter("Videos", "*.mp4", "*.avi", "*.mov", "*.mkv", "*.webm")
         );
         
         List<File> files = fileChooser.showOpenMultipleDialog(primaryStage);
         if (files != null) {
-            for (File file : files) {
-                addStudyMaterial(file);
-            }
-            updateStats();
-            refreshContentArea();
+            startImport(files);
         }
     }
     
@@ -381,208 +608,505 @@ public class StudyMaterialsManager extends Application {
         
         File directory = dirChooser.showDialog(primaryStage);
         if (directory != null) {
-            addFolderRecursively(directory);
-            updateStats();
-            refreshContentArea();
+            startImport(Collections.singletonList(directory));
         }
     }
     
-    private void addStudyMaterial(File file) {
-        try {
-            // Copy file to study directory
-            Path targetPath = studyDirectory.resolve(file.getName());
-            if (!Files.exists(targetPath)) {
-                Files.copy(file.toPath(), targetPath);
+    // Copies files (and folder contents) into the study directory in the background. Files
+    // that cannot be copied are collected in the task's report; the rest still import.
+    private void startImport(List<File> sources) {
+        if (activeImport != null) {
+            showAlert("Import Running", "Please wait for the current import to finish or cancel it.");
+            return;
+        }
+        
+        UiTaskExecutor.Task task = tasks.begin("Importing files", () -> {
+            if (activeImport != null) {
+                activeImport.cancel();
+            }
+        });
+        task.status("Scanning files...");
+        activeImport = library.startImport(sources, materials::contains, new ImportEngine.Listener() {
+            @Override
+            public void onBatch(List<StudyMaterial> batch) {
+                task.ui(() -> addStudyMaterials(batch));
             }
             
-            StudyMaterial material = new StudyMaterial(targetPath.toFile());
-            if (!studyMaterials.contains(material)) {
-                studyMaterials.add(material);
+            @Override
+            public void onProgress(int completed, int discovered, long bytesCopied) {
+                if (discovered > 0) {
+                    task.progress(completed, discovered, String.format("Imported %d of %d files (%.1f MB)",
+                        completed, discovered, bytesCopied / (1024.0 * 1024.0)));
+                }
             }
-        } catch (IOException e) {
-            showAlert("Error", "Failed to add file: " + e.getMessage());
-        }
+            
+            @Override
+            public void onFailure(File file, IOException error) {
+                task.failed(file.getName(), error);
+            }
+            
+            @Override
+            public void onComplete(ImportEngine.ImportSummary summary) {
+                task.status(summary.toString());
+                task.ui(() -> {
+                    activeImport = null;
+                    saveCatalog();
+                });
+                task.finish(null);
+            }
+        });
     }
     
-    private void addFolderRecursively(File folder) {
-        File[] files = folder.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile()) {
-                    addStudyMaterial(file);
-                } else if (file.isDirectory()) {
-                    addFolderRecursively(file);
-                }
+    private void addStudyMaterials(List<StudyMaterial> batch) {
+        List<StudyMaterial> fresh = new ArrayList<>(batch.size());
+        for (StudyMaterial material : batch) {
+            if (!materials.contains(material.getFile())) {
+                fresh.add(material);
             }
         }
+        LibraryService target = library;
+        libraryExecutor.submit(() -> target.addImported(fresh));
+        updateLibrary(Collections.emptyList(), fresh);
+        refreshContentArea();
     }
     
+    // Shows the catalogued materials immediately, then reconciles with the disk in the background
     private void loadExistingMaterials() {
-        studyMaterials.clear();
+        clearLibrary();
+        closeLibrary();
+        library = new LibraryService(studyDirectory);
         if (Files.exists(studyDirectory)) {
+            updateLibrary(Collections.emptyList(), library.loadCatalog());
+            LibraryService target = library;
+            libraryExecutor.submit(() -> {
+                // Replaying the records reads and may rewrite the log; the results are
+                // handed to the indexes on the FX thread, which reads them
+                try {
+                    LibraryService.StoredRecords stored = target.readRecords();
+                    Platform.runLater(() -> {
+                        if (target == library) {
+                            target.publishRecords(stored);
+                            refreshStudyTime();
+                        }
+                    });
+                } catch (IOException e) {
+                    tasks.report("Reading study sessions, notes and bookmarks", e);
+                }
+                target.loadIndexes();
+                target.indexPending();
+            });
+            recoverOrganize();
+            reconcileCatalog();
+            startWatcher();
+        }
+    }
+    
+    // Saves and releases the previous study directory's library in the background
+    private void closeLibrary() {
+        endStudySession();
+        LibraryService previous = library;
+        library = null;
+        if (previous != null) {
+            libraryExecutor.submit(() -> {
+                try {
+                    previous.close();
+                } catch (IOException e) {
+                    // Rebuilt from the disk the next time the directory is opened
+                }
+            });
+        }
+    }
+    
+    // Keeps the library in sync with external changes without a manual refresh. Registering
+    // every folder takes a while on a large library, so it happens on the library thread
+    // and the watcher is installed once it is ready.
+    private void startWatcher() {
+        stopWatcher();
+        LibraryService target = library;
+        Path directory = studyDirectory;
+        libraryExecutor.submit(() -> {
+            LibraryWatcher started;
             try {
-                Files.walk(studyDirectory)
-                     .filter(Files::isRegularFile)
-                     .forEach(path -> {
-                         StudyMaterial material = new StudyMaterial(path.toFile());
-                         studyMaterials.add(material);
-                     });
+                started = new LibraryWatcher(directory, (paths, subtrees) -> libraryExecutor.submit(() -> {
+                    try {
+                        LibraryCatalog.Changes changes = target.refresh(paths, subtrees);
+                        if (!changes.isEmpty()) {
+                            Platform.runLater(() -> applyCatalogChanges(target, changes));
+                        }
+                    } catch (IOException e) {
+                        tasks.report("Updating the library from the disk", e);
+                        // Fall back to a full reconcile of the catalog
+                        reconcileCatalog(target);
+                    }
+                }));
             } catch (IOException e) {
-                showAlert("Error", "Failed to load existing materials: " + e.getMessage());
+                tasks.report("Watching the study directory for changes", e);
+                return;
             }
+            Platform.runLater(() -> {
+                if (target == library && watcher == null) {
+                    watcher = started;
+                    watcher.start();
+                } else {
+                    started.close(); // The study directory changed meanwhile
+                }
+            });
+        });
+    }
+    
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
         }
     }
     
+    private void reconcileCatalog() {
+        reconcileCatalog(library);
+    }
+    
+    // Callable from any thread
+    private void reconcileCatalog(LibraryService target) {
+        libraryExecutor.submit(() -> {
+            try {
+                LibraryCatalog.Changes changes = target.scan();
+                if (!changes.isEmpty()) {
+                    Platform.runLater(() -> applyCatalogChanges(target, changes));
+                }
+            } catch (IOException e) {
+                tasks.report("Loading existing materials", e);
+            }
+        });
+    }
+    
+    private void applyCatalogChanges(LibraryService source, LibraryCatalog.Changes changes) {
+        if (source != library) {
+            return; // Study directory changed while reconciling
+        }
+        
+        Set<File> staleFiles = new HashSet<>(changes.removed);
+        for (StudyMaterial material : changes.updated) {
+            staleFiles.add(material.getFile());
+        }
+        List<StudyMaterial> fresh = new ArrayList<>(changes.updated.size() + changes.added.size());
+        fresh.addAll(changes.updated);
+        fresh.addAll(changes.added);
+        updateLibrary(staleFiles, fresh);
+        thumbnailCache.invalidate(staleFiles);
+        
+        refreshContentArea();
+    }
+    
+    private void saveCatalog() {
+        LibraryService target = library;
+        libraryExecutor.submit(() -> {
+            try {
+                target.save();
+            } catch (IOException e) {
+                tasks.report("Saving the library catalog", e);
+            }
+        });
+    }
+    
+    // Computes the organize plan first and shows it as a dry run; nothing moves until confirmed
     private void autoOrganizeMaterials() {
+        LibraryService target = library;
+        libraryExecutor.submit(() -> {
+            OrganizePlan plan = target.planOrganize();
+            Platform.runLater(() -> confirmOrganize(plan));
+        });
+    }
+    
+    private void confirmOrganize(OrganizePlan plan) {
+        if (plan.getRoot() != studyDirectory) {
+            return;
+        }
+        if (plan.isEmpty()) {
+            showAlert("Auto Organize", plan.describe());
+            return;
+        }
+        
         Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
         confirmDialog.setTitle("Auto Organize");
         confirmDialog.setHeaderText("Organize Materials by Type");
-        confirmDialog.setContentText("This will move your files into categorized folders. Continue?");
+        confirmDialog.setContentText(plan.describe() + "\n\nContinue?");
         
         if (confirmDialog.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
+            organizeByType(new OrganizeTransaction(plan, new TransferEngine()), false);
+        }
+    }
+    
+    // Runs (or resumes) an organize transaction as a task. On success the catalog, hashes,
+    // index and list are renamed in place; on failure the transaction has already tried
+    // to move every file back, and if some could not be, the task offers to retry that.
+    private void organizeByType(OrganizeTransaction transaction, boolean resume) {
+        LibraryService target = library;
+        tasks.submit("Auto Organize", task -> {
+            long started = System.nanoTime();
+            OrganizeTransaction.ProgressListener listener = (completed, total) ->
+                task.progress(completed, total, String.format("Moved %d of %d files", completed, total));
+            List<OrganizePlan.Move> moves;
             try {
-                organizeByType();
-                loadExistingMaterials();
-                updateStats();
-                refreshContentArea();
-                showAlert("Success", "Materials have been organized successfully!");
+                moves = resume ? transaction.resume(listener) : transaction.execute(listener);
             } catch (IOException e) {
-                showAlert("Error", "Failed to organize materials: " + e.getMessage());
+                task.ui(this::reconcileCatalog);
+                if (e.getSuppressed().length == 0) {
+                    throw new IOException(e.getMessage() + " All files have been moved back to where they were.", e);
+                }
+                // The journal is kept when the rollback fails, so it can run again
+                task.offer("Retry Roll Back", () -> rollBackOrganize(transaction));
+                throw new IOException(e.getMessage() + " Some files could not be moved back ("
+                    + e.getSuppressed()[0].getMessage() + "); retry the roll back to finish.", e);
             }
-        }
+            double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+            // The catalog belongs to the library thread; wait there so the task ends when the list is current
+            libraryExecutor.submit(() -> target.applyMoves(moves)).get();
+            task.ui(() -> {
+                if (target == library) {
+                    relocateMaterials(moves);
+                }
+            });
+            task.status(String.format("%d files moved (%.1f MB/s)", moves.size(),
+                transaction.getPlan().getTotalBytes() / seconds / (1024.0 * 1024.0)));
+        });
     }
     
-    private void organizeByType() throws IOException {
-        Map<String, Path> categoryFolders = new HashMap<>();
-        
-        for (StudyMaterial material : studyMaterials) {
-            String category = material.getCategory();
-            Path categoryFolder = categoryFolders.computeIfAbsent(category, 
-                cat -> studyDirectory.resolve(cat));
-            
-            if (!Files.exists(categoryFolder)) {
-                Files.createDirectories(categoryFolder);
-            }
-            
-            Path newPath = categoryFolder.resolve(material.getFile().getName());
-            if (!material.getFile().toPath().equals(newPath)) {
-                Files.move(material.getFile().toPath(), newPath);
+    // Replaces the moved materials in a single update instead of rescanning the library
+    private void relocateMaterials(List<OrganizePlan.Move> moves) {
+        List<File> moved = new ArrayList<>();
+        List<StudyMaterial> relocated = new ArrayList<>();
+        for (OrganizePlan.Move move : moves) {
+            int row = materials.find(move.source.toFile());
+            File newFile = move.target.toFile();
+            if (row >= 0 && !materials.contains(newFile)) {
+                moved.add(move.source.toFile());
+                relocated.add(materials.materialize(row).withFile(newFile));
             }
         }
+        updateLibrary(moved, relocated);
+        refreshContentArea();
     }
     
-    private void openMaterial(StudyMaterial material) {
+    // Offers to resume or roll back an Auto Organize that was interrupted by a crash
+    private void recoverOrganize() {
+        OrganizeTransaction transaction;
         try {
-            java.awt.Desktop.getDesktop().open(material.getFile());
+            transaction = OrganizeTransaction.recover(studyDirectory, new TransferEngine());
         } catch (IOException e) {
-            showAlert("Error", "Cannot open file: " + e.getMessage());
+            Metrics.global().error("organize", "Cannot read the journal: " + e);
+            showAlert("Error", "Cannot read the interrupted Auto Organize journal: " + e.getMessage());
+            return;
+        }
+        if (transaction == null) {
+            return;
+        }
+        
+        ButtonType resume = new ButtonType("Resume");
+        ButtonType rollBack = new ButtonType("Roll Back");
+        Alert dialog = new Alert(Alert.AlertType.CONFIRMATION, "", resume, rollBack);
+        dialog.setTitle("Auto Organize");
+        dialog.setHeaderText("Auto Organize did not finish");
+        dialog.setContentText(String.format("%d of %d moves were completed before StudyMate closed.\n" +
+            "Resume the remaining moves or move everything back?",
+            transaction.getCompletedCount(), transaction.getPlan().getMoves().size()));
+        
+        if (dialog.showAndWait().orElse(rollBack) == resume) {
+            organizeByType(transaction, true);
+        } else {
+            rollBackOrganize(transaction);
         }
     }
     
-    private void filterMaterials(String searchText, String filter, String sortBy) {
-        ObservableList<StudyMaterial> filteredList = FXCollections.observableArrayList();
-        
-        for (StudyMaterial material : studyMaterials) {
-            boolean matchesSearch = searchText.isEmpty() || 
-                material.getName().toLowerCase().contains(searchText.toLowerCase());
-            boolean matchesFilter = filter.equals("All") || 
-                material.getCategory().equals(filter);
-            
-            if (matchesSearch && matchesFilter) {
-                filteredList.add(material);
+    // Moves the files of an organize transaction back as a task; if some cannot be moved,
+    // the journal is kept and the task offers to try again
+    private void rollBackOrganize(OrganizeTransaction transaction) {
+        tasks.submit("Rolling back Auto Organize", libraryExecutor, task -> {
+            try {
+                transaction.rollback();
+            } catch (IOException e) {
+                task.offer("Retry", () -> rollBackOrganize(transaction));
+                throw e;
+            } finally {
+                task.ui(this::reconcileCatalog);
             }
+        });
+    }
+    
+    // Opens the file and starts a study session for it
+    private void openMaterial(StudyMaterial material) {
+        openFile(material, () -> startStudySession(material));
+    }
+    
+    // Launching the default application can take a while, so it runs as a task;
+    // onOpened then runs on the FX thread
+    private void openFile(StudyMaterial material, Runnable onOpened) {
+        tasks.submit("Opening " + material.getName(), task -> {
+            java.awt.Desktop.getDesktop().open(material.getFile());
+            task.ui(onOpened);
+        });
+    }
+    
+    private void deleteMaterial(StudyMaterial material) {
+        tasks.submit("Deleting " + material.getName(), task -> {
+            Files.delete(material.getFile().toPath());
+            task.ui(() -> updateLibrary(Collections.singleton(material.getFile()), Collections.emptyList()));
+        });
+    }
+    
+    private void runSearch() {
+        if (searchText.isEmpty()) {
+            materialSearch.cancel();
+            searchResult = null;
+            applyFilterPredicate();
+            Metrics.global().timer("ui.search.keystrokeToResults").since(searchTypedNanos);
+            return;
         }
         
-        // Sort the filtered list
-        switch (sortBy) {
-            case "Name":
-                filteredList.sort((a, b) -> a.getName().compareToIgnoreCase(b.getName()));
-                break;
-            case "Size":
-                filteredList.sort((a, b) -> Long.compare(a.getSize(), b.getSize()));
-                break;
-            case "Type":
-                filteredList.sort((a, b) -> a.getCategory().compareToIgnoreCase(b.getCategory()));
-                break;
-            default: // Date Added
-                filteredList.sort((a, b) -> b.getDateAdded().compareTo(a.getDateAdded()));
+        materialSearch.submit(materials.names(), libraryVersion, searchText, library.getContentIndex(),
+            library.getNoteIndex(), library.getCatalog(),
+            (generation, result) -> Platform.runLater(() -> {
+                if (!materialSearch.isCurrent(generation)) {
+                    return;
+                }
+                if (!result.isFor(materials)) {
+                    runSearch(); // The rows were renumbered while the query ran
+                    return;
+                }
+                searchResult = result;
+                applyFilterPredicate();
+                // Typing to visible results, including the debounce delay
+                Metrics.global().timer("ui.search.keystrokeToResults").since(searchTypedNanos);
+            }));
+    }
+    
+    private void applyFilterPredicate() {
+        long started = System.nanoTime();
+        if (searchResult != null && !searchResult.isFor(materials)) {
+            searchResult = null;
         }
-        
-        materialsListView.setItems(filteredList);
+        visibleFilter = MaterialSearch.filter(materials, categoryFilter, searchResult);
+        showRows();
+        Metrics.global().timer("ui.filter").since(started);
     }
     
-    // UI Update Methods
-    private void updateStats() {
-        categoryStats.clear();
-        for (StudyMaterial material : studyMaterials) {
-            categoryStats.merge(material.getCategory(), 1, Integer::sum);
+    // Switching to an order already sorted is a copy of the pre-sorted index. The first
+    // switch to another order sorts it on the library thread; the list keeps its current
+    // order until that is done.
+    private void applySortOrder(String sortBy) {
+        SortedMaterialIndex.Order order = SortedMaterialIndex.Order.fromLabel(sortBy);
+        requestedSortOrder = order;
+        sortedIndex.sortInBackground(order, libraryExecutor, Platform::runLater, () -> {
+            if (requestedSortOrder == order) {
+                sortOrder = order;
+                showRows();
+            }
+        });
+    }
+    
+    // Every change to the library goes through here, so the table, the stats, the sorted
+    // index and the visible rows stay in step. Removed files that are not in the library
+    // and added materials that already are are skipped.
+    private void updateLibrary(Collection<File> removedFiles, Collection<StudyMaterial> addedMaterials) {
+        boolean bulk = removedFiles.size() + addedMaterials.size() >= 64;
+        BitSet removedRows = new BitSet();
+        for (File file : removedFiles) {
+            int row = materials.find(file);
+            if (row < 0) {
+                continue;
+            }
+            libraryStats.remove(materials.getCategory(row), materials.getSize(row));
+            if (bulk) {
+                removedRows.set(row);
+            } else {
+                hideRow(row);
+                sortedIndex.remove(row, null);
+            }
+            materials.remove(row);
         }
-        
-        int totalMaterials = studyMaterials.size();
-        if (statsLabel != null) {
-            statsLabel.setText(totalMaterials + " materials in library");
+        sortedIndex.removeAll(removedRows);
+        
+        int[] addedRows = new int[addedMaterials.size()];
+        int added = 0;
+        for (StudyMaterial material : addedMaterials) {
+            if (!materials.contains(material.getFile())) {
+                addedRows[added++] = materials.add(material);
+                libraryStats.add(material);
+            }
         }
+        sortedIndex.addAll(addedRows, added);
         
-        // Update progress (example: based on number of materials)
-        double progress = Math.min(totalMaterials / 50.0, 1.0); // Max 50 for full progress
-        if (studyProgress != null) {
-            studyProgress.setProgress(progress);
+        // Large changes rebuild the visible rows; small ones move single rows so the
+        // list keeps its scroll position and selection
+        if (bulk) {
+            showRows();
+        } else {
+            for (int i = 0; i < added; i++) {
+                showRow(addedRows[i]);
+            }
+        }
+        // Compacting renumbers rows, which would invalidate a search result in use
+        if (materials.isSparse() && searchText.isEmpty()) {
+            int[] remap = materials.compact();
+            sortedIndex.remap(remap);
+            visibleMaterials.remap(remap);
         }
         
-        // Update categories display - Find the VBox in the side panel safely
-        if (sidePanel != null && sidePanel.getChildren().size() > 0) {
-            VBox categoriesBox = findCategoriesBox();
-            if (categoriesBox != null) {
-                updateCategoriesDisplay(categoriesBox);
-            }
+        libraryVersion++;
+        if (!searchText.isEmpty()) {
+            searchDebounce.playFromStart();
         }
+        publishStats();
     }
     
-    private VBox findCategoriesBox() {
-        // Use the stored reference if available
-        if (sidePanel.getUserData() instanceof VBox) {
-            return (VBox) sidePanel.getUserData();
-        }
-        
-        // Fallback: Look for the VBox that comes after the "Categories" label
-        for (int i = 0; i < sidePanel.getChildren().size(); i++) {
-            if (sidePanel.getChildren().get(i) instanceof Label) {
-                Label label = (Label) sidePanel.getChildren().get(i);
-                if (label.getText().contains("Categories") && i + 1 < sidePanel.getChildren().size()) {
-                    if (sidePanel.getChildren().get(i + 1) instanceof VBox) {
-                        return (VBox) sidePanel.getChildren().get(i + 1);
-                    }
-                }
+    private void clearLibrary() {
+        visibleMaterials.clear();
+        sortedIndex.clear();
+        materials.clear();
+        libraryStats.clear();
+        searchResult = null;
+        visibleFilter = MaterialSearch.filter(materials, categoryFilter, null);
+        libraryVersion++;
+        publishStats();
+    }
+    
+    private void showRows() {
+        visibleMaterials.setRows(sortedIndex.select(sortOrder, visibleFilter));
+    }
+    
+    private void showRow(int row) {
+        if (visibleFilter == null || visibleFilter.test(row)) {
+            int position = visibleMaterials.search(row, sortedIndex.comparator(sortOrder));
+            if (position < 0) {
+                visibleMaterials.insert(-position - 1, row);
             }
         }
-        return null;
     }
     
-    private void updateCategoriesDisplay(VBox categoriesBox) {
-        categoriesBox.getChildren().clear();
-        
-        for (Map.Entry<String, Integer> entry : categoryStats.entrySet()) {
-            HBox categoryItem = new HBox(10);
-            categoryItem.setAlignment(Pos.CENTER_LEFT);
-            
-            Label categoryLabel = new Label(getCategoryIcon(entry.getKey()) + " " + entry.getKey());
-            categoryLabel.setTextFill(Color.web("#ecf0f1"));
-            categoryLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 12));
-            
-            Region spacer = new Region();
-            HBox.setHgrow(spacer, Priority.ALWAYS);
-            
-            Label countLabel = new Label(entry.getValue().toString());
-            countLabel.setTextFill(Color.web("#bdc3c7"));
-            countLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 12));
-            
-            categoryItem.getChildren().addAll(categoryLabel, spacer, countLabel);
-            categoriesBox.getChildren().add(categoryItem);
+    private void hideRow(int row) {
+        int position = visibleMaterials.search(row, sortedIndex.comparator(sortOrder));
+        if (position >= 0) {
+            visibleMaterials.removeAt(position);
+        }
+    }
+    
+    // UI Update Methods
+    // libraryStats is kept up to date by updateLibrary(); only the counters of the
+    // categories that changed are pushed to the side panel
+    private void publishStats() {
+        int changed = libraryStats.takeChanged();
+        for (Category category : Category.values()) {
+            if ((changed & (1 << category.ordinal())) != 0) {
+                categoryCounts.computeIfAbsent(category, c -> new SimpleIntegerProperty())
+                    .set(libraryStats.getCount(category));
+                categoryBytes.computeIfAbsent(category, c -> new SimpleLongProperty())
+                    .set(libraryStats.getBytes(category));
+            }
         }
+        totalMaterials.set(libraryStats.getTotalCount());
     }
     
     private void refreshContentArea() {
-        if (studyMaterials.isEmpty()) {
+        if (materials.size() == 0) {
             contentArea.getChildren().clear();
             contentArea.getChildren().addAll(createSearchBar(), createEmptyState());
         } else if (contentArea.getChildren().size() < 2 || 
@@ -637,6 +1161,13 @@ public class StudyMaterialsManager extends Application {
         
         dirBox.getChildren().addAll(dirField, browseDirBtn);
         
+        // Weekly study goal setting
+        Label goalLabel = new Label("🎯 Weekly Study Goal (hours):");
+        goalLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
+        
+        Spinner<Integer> goalSpinner = new Spinner<>(1, 80, weeklyGoalHours.get());
+        goalSpinner.setEditable(true);
+        
         // Buttons
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER_RIGHT);
@@ -647,12 +1178,12 @@ public class StudyMaterialsManager extends Application {
         saveBtn.setOnAction(e -> {
             userName = nameField.getText().trim().isEmpty() ? "Student" : nameField.getText().trim();
             currentTheme = themeCombo.getValue();
+            weeklyGoalHours.set(goalSpinner.getValue());
             
             if (!dirField.getText().equals(studyDirectory.toString())) {
                 studyDirectory = Paths.get(dirField.getText());
                 initializeStudyDirectory();
                 loadExistingMaterials();
-                updateStats();
                 refreshContentArea();
             }
             
@@ -672,6 +1203,7 @@ public class StudyMaterialsManager extends Application {
             nameLabel, nameField,
             themeLabel, themeCombo,
             dirLabel, dirBox,
+            goalLabel, goalSpinner,
             new Separator(),
             buttonBox
         );
@@ -707,6 +1239,7 @@ public class StudyMaterialsManager extends Application {
                 Files.createDirectories(studyDirectory);
             }
         } catch (IOException e) {
+            Metrics.global().error("ui", studyDirectory + ": " + e);
             showAlert("Error", "Failed to create study directory: " + e.getMessage());
         }
     }
@@ -714,6 +1247,7 @@ public class StudyMaterialsManager extends Application {
     private void loadUserPreferences() {
         userName = userPrefs.get("userName", "Student");
         currentTheme = userPrefs.get("theme", "Light");
+        weeklyGoalHours.set(Math.max(1, userPrefs.getInt("weeklyGoalHours", 10)));
         String dirPath = userPrefs.get("studyDirectory", 
             Paths.get(System.getProperty("user.home"), "StudyMaterials").toString());
         studyDirectory = Paths.get(dirPath);
@@ -722,19 +1256,10 @@ public class StudyMaterialsManager extends Application {
     private void saveUserPreferences() {
         userPrefs.put("userName", userName);
         userPrefs.put("theme", currentTheme);
+        userPrefs.putInt("weeklyGoalHours", weeklyGoalHours.get());
         userPrefs.put("studyDirectory", studyDirectory.toString());
     }
     
-    private String getCategoryIcon(String category) {
-        switch (category) {
-            case "PDF": return "📄";
-            case "Images": return "🖼️";
-            case "Documents": return "📝";
-            case "Videos": return "🎬";
-            default: return "📋";
-        }
-    }
-    
     private void showAlert(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -747,338 +1272,3 @@ public class StudyMaterialsManager extends Application {
         launch(args);
     }
 }
-
-// Study Material Model Class
-class StudyMaterial {
-    private File file;
-    private String name;
-    private String category;
-    private long size;
-    private LocalDateTime dateAdded;
-    
-    public StudyMaterial(File file) {
-        this.file = file;
-        this.name = file.getName();
-        this.size = file.length();
-        this.dateAdded = LocalDateTime.now();
-        this.category = determineCategory(file);
-    }
-    
-    private String determineCategory(File file) {
-        String extension = getFileExtension(file).toLowerCase();
-        
-        switch (extension) {
-            case "pdf":
-                return "PDF";
-            case "png":
-            case "jpg":
-            case "jpeg":
-            case "gif":
-            case "bmp":
-                return "Images";
-            case "doc":
-            case "docx":
-            case "txt":
-            case "rtf":
-                return "Documents";
-            case "mp4":
-            case "avi":
-            case "mov":
-            case "wmv":
-                return "Videos";
-            default:
-                return "Others";
-        }
-    }
-    
-    private String getFileExtension(File file) {
-        String name = file.getName();
-        int lastDot = name.lastIndexOf('.');
-        return lastDot > 0 ? name.substring(lastDot + 1) : "";
-    }
-    
-    // Getters
-    public File getFile() { return file; }
-    public String getName() { return name; }
-    public String getCategory() { return category; }
-    public long getSize() { return size; }
-    public LocalDateTime getDateAdded() { return dateAdded; }
-    
-    public String getFormattedSize() {
-        if (size < 1024) return size + " B";
-        else if (size < 1024 * 1024) return String.format("%.1f KB", size / 1024.0);
-        else if (size < 1024 * 1024 * 1024) return String.format("%.1f MB", size / (1024.0 * 1024.0));
-        else return String.format("%.1f GB", size / (1024.0 * 1024.0 * 1024.0));
-    }
-    
-    public String getFormattedDate() {
-        return dateAdded.format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm"));
-    }
-    
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
-        StudyMaterial that = (StudyMaterial) obj;
-        return Objects.equals(file.getAbsolutePath(), that.file.getAbsolutePath());
-    }
-    
-    @Override
-    public int hashCode() {
-        return Objects.hash(file.getAbsolutePath());
-    }
-    
-    @Override
-    public String toString() {
-        return name;
-    }
-}
-
-// Custom ListView Cell for Study Materials
-class StudyMaterialCell extends ListCell<StudyMaterial> {
-    private HBox content;
-    private VBox textContent;
-    private Label nameLabel;
-    private Label detailsLabel;
-    private Label categoryLabel;
-    private Button actionButton;
-    private Button deleteButton;
-    
-    public StudyMaterialCell() {
-        super();
-        createLayout();
-    }
-    
-    private void createLayout() {
-        content = new HBox(15);
-        content.setPadding(new Insets(12));
-        content.setAlignment(Pos.CENTER_LEFT);
-        content.setStyle("-fx-background-color: white; -fx-background-radius: 8; " +
-                        "-fx-border-color: #ecf0f1; -fx-border-radius: 8; -fx-border-width: 1;");
-        
-        // Icon/Category indicator
-        categoryLabel = new Label();
-        categoryLabel.setFont(Font.font(24));
-        categoryLabel.setMinWidth(40);
-        categoryLabel.setAlignment(Pos.CENTER);
-        
-        // Text content
-        textContent = new VBox(4);
-        nameLabel = new Label();
-        nameLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 14));
-        nameLabel.setTextFill(Color.web("#2c3e50"));
-        
-        detailsLabel = new Label();
-        detailsLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 11));
-        detailsLabel.setTextFill(Color.web("#7f8c8d"));
-        
-        textContent.getChildren().addAll(nameLabel, detailsLabel);
-        
-        // Spacer
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-        
-        // Action buttons
-        actionButton = new Button("📖 Open");
-        actionButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; " +
-                             "-fx-font-size: 11; -fx-padding: 6 12; -fx-background-radius: 4;");
-        
-        deleteButton = new Button("🗑️");
-        deleteButton.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; " +
-                             "-fx-font-size: 11; -fx-padding: 6 8; -fx-background-radius: 4;");
-        
-        HBox buttonBox = new HBox(6);
-        buttonBox.getChildren().addAll(actionButton, deleteButton);
-        
-        content.getChildren().addAll(categoryLabel, textContent, spacer, buttonBox);
-        
-        // Hover effects
-        content.setOnMouseEntered(e -> {
-            content.setStyle(content.getStyle() + 
-                "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 10, 0, 0, 2);");
-            content.setScaleX(1.02);
-            content.setScaleY(1.02);
-        });
-        
-        content.setOnMouseExited(e -> {
-            content.setStyle(content.getStyle().replaceAll(
-                "-fx-effect: dropshadow\\(three-pass-box, rgba\\(0,0,0,0\\.1\\), 10, 0, 0, 2\\);", ""));
-            content.setScaleX(1.0);
-            content.setScaleY(1.0);
-        });
-    }
-    
-    @Override
-    protected void updateItem(StudyMaterial material, boolean empty) {
-        super.updateItem(material, empty);
-        
-        if (empty || material == null) {
-            setGraphic(null);
-        } else {
-            // Update content
-            categoryLabel.setText(getCategoryIcon(material.getCategory()));
-            nameLabel.setText(material.getName());
-            detailsLabel.setText(String.format("%s • %s • Added %s", 
-                material.getCategory(), 
-                material.getFormattedSize(), 
-                material.getFormattedDate()));
-            
-            // Set up button actions
-            actionButton.setOnAction(e -> {
-                try {
-                    java.awt.Desktop.getDesktop().open(material.getFile());
-                } catch (IOException ex) {
-                    showAlert("Error", "Cannot open file: " + ex.getMessage());
-                }
-            });
-            
-            deleteButton.setOnAction(e -> {
-                Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
-                confirm.setTitle("Delete Material");
-                confirm.setHeaderText("Delete " + material.getName() + "?");
-                confirm.setContentText("This will permanently delete the file from your study directory.");
-                
-                if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
-                    try {
-                        Files.delete(material.getFile().toPath());
-                        getListView().getItems().remove(material);
-                    } catch (IOException ex) {
-                        showAlert("Error", "Failed to delete file: " + ex.getMessage());
-                    }
-                }
-            });
-            
-            setGraphic(content);
-        }
-    }
-    
-    private String getCategoryIcon(String category) {
-        switch (category) {
-            case "PDF": return "📄";
-            case "Images": return "🖼️";
-            case "Documents": return "📝";
-            case "Videos": return "🎬";
-            default: return "📋";
-        }
-    }
-    
-    private void showAlert(String title, String message) {
-        Alert alert = new Alert(Alert.AlertType.ERROR);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
-    }
-}
-
-// Study Session Tracker (Additional Feature)
-class StudySession {
-    private LocalDateTime startTime;
-    private LocalDateTime endTime;
-    private String materialName;
-    private long durationMinutes;
-    
-    public StudySession(String materialName) {
-        this.materialName = materialName;
-        this.startTime = LocalDateTime.now();
-    }
-    
-    public void endSession() {
-        this.endTime = LocalDateTime.now();
-        this.durationMinutes = java.time.Duration.between(startTime, endTime).toMinutes();
-    }
-    
-    // Getters
-    public LocalDateTime getStartTime() { return startTime; }
-    public LocalDateTime getEndTime() { return endTime; }
-    public String getMaterialName() { return materialName; }
-    public long getDurationMinutes() { return durationMinutes; }
-    
-    public String getFormattedDuration() {
-        if (durationMinutes < 60) {
-            return durationMinutes + " min";
-        } else {
-            long hours = durationMinutes / 60;
-            long minutes = durationMinutes % 60;
-            return hours + "h " + minutes + "m";
-        }
-    }
-}
-
-// Note-taking Feature
-class StudyNote {
-    private String title;
-    private String content;
-    private String associatedMaterial;
-    private LocalDateTime created;
-    private LocalDateTime lastModified;
-    
-    public StudyNote(String title, String content, String associatedMaterial) {
-        this.title = title;
-        this.content = content;
-        this.associatedMaterial = associatedMaterial;
-        this.created = LocalDateTime.now();
-        this.lastModified = LocalDateTime.now();
-    }
-    
-    // Getters and Setters
-    public String getTitle() { return title; }
-    public void setTitle(String title) { 
-        this.title = title; 
-        this.lastModified = LocalDateTime.now();
-    }
-    
-    public String getContent() { return content; }
-    public void setContent(String content) { 
-        this.content = content; 
-        this.lastModified = LocalDateTime.now();
-    }
-    
-    public String getAssociatedMaterial() { return associatedMaterial; }
-    public LocalDateTime getCreated() { return created; }
-    public LocalDateTime getLastModified() { return lastModified; }
-    
-    public String getFormattedCreated() {
-        return created.format(DateTimeFormatter.ofPattern("MMM dd, yyyy"));
-    }
-}
-
-// Bookmark/Favorites Feature
-class MaterialBookmark {
-    private String materialPath;
-    private String customName;
-    private String notes;
-    private int priority; // 1-5 stars
-    private LocalDateTime bookmarked;
-    
-    public MaterialBookmark(String materialPath, String customName, int priority) {
-        this.materialPath = materialPath;
-        this.customName = customName;
-        this.priority = Math.max(1, Math.min(5, priority));
-        this.bookmarked = LocalDateTime.now();
-        this.notes = "";
-    }
-    
-    // Getters and Setters
-    public String getMaterialPath() { return materialPath; }
-    public String getCustomName() { return customName; }
-    public void setCustomName(String customName) { this.customName = customName; }
-    public String getNotes() { return notes; }
-    public void setNotes(String notes) { this.notes = notes; }
-    public int getPriority() { return priority; }
-    public void setPriority(int priority) { this.priority = Math.max(1, Math.min(5, priority)); }
-    public LocalDateTime getBookmarked() { return bookmarked; }
-    
-    public String getPriorityStars() {
-        StringBuilder stars = new StringBuilder();
-        // Add filled stars
-        for (int i = 0; i < priority; i++) {
-            stars.append("⭐");
-        }
-        // Add empty stars
-        for (int i = 0; i < (5 - priority); i++) {
-            stars.append("☆");
-        }
-        return stars.toString();
-    }
-}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.studymate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+// Note-taking Feature
+class StudyNote {
+    private long id; // assigned by StudyRecordStore on first save
+    private long materialId; // StudyMaterial id of the associated material, 0 if none
+    private String title;
+    private String content;
+    private String associatedMaterial;
+    private LocalDateTime created;
+    private LocalDateTime lastModified;
+    private Consumer<StudyNote> onChange; // set by LibraryService to save and re-index edits
+    
+    public StudyNote(String title, String content, String associatedMaterial) {
+        this.title = title;
+        this.content = content;
+        this.associatedMaterial = associatedMaterial;
+        this.created = LocalDateTime.now();
+        this.lastModified = LocalDateTime.now();
+    }
+    
+    // Restores a stored note
+    StudyNote(long id, long materialId, String title, String content, String associatedMaterial,
+              LocalDateTime created, LocalDateTime lastModified) {
+        this.id = id;
+        this.materialId = materialId;
+        this.title = title;
+        this.content = content;
+        this.associatedMaterial = associatedMaterial;
+        this.created = created;
+        this.lastModified = lastModified;
+    }
+    
+    // Getters and Setters
+    public long getId() { return id; }
+    void setId(long id) { this.id = id; }
+    void setOnChange(Consumer<StudyNote> onChange) { this.onChange = onChange; }
+    public long getMaterialId() { return materialId; }
+    void setMaterialId(long materialId) { this.materialId = materialId; }
+    public String getTitle() { return title; }
+    public void setTitle(String title) { 
+        this.title = title; 
+        this.lastModified = LocalDateTime.now();
+        changed();
+    }
+    
+    public String getContent() { return content; }
+    public void setContent(String content) { 
+        this.content = content; 
+        this.lastModified = LocalDateTime.now();
+        changed();
+    }
+    
+    private void changed() {
+        if (onChange != null) {
+            onChange.accept(this);
+        }
+    }
+    
+    public String getAssociatedMaterial() { return associatedMaterial; }
+    public LocalDateTime getCreated() { return created; }
+    public LocalDateTime getLastModified() { return lastModified; }
+    
+    public String getFormattedCreated() {
+        return created.format(DateTimeFormatter.ofPattern("MMM dd, yyyy"));
+    }
+}
@@ -0,0 +1,620 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+// Embedded store for study sessions, notes and bookmarks. Every change is appended to a
+// log as a small binary record; a single writer thread writes whatever has queued up in
+// one go and syncs once per batch (group commit), so saving from the FX thread costs an
+// encode and a queue offer. When the log outgrows the live data it is folded into a
+// snapshot and truncated. Opening reads the snapshot, then replays the log records
+// after it; a record torn by a crash fails its checksum and is cut off.
+//
+// Record: int body length, int CRC-32 of the body, then the body: long sequence,
+// byte kind, byte op and the entity (or its key for a delete).
+//
+// Version 2 refers to materials by StudyMaterial id instead of by path. Version 1 files
+// are read with the paths resolved to ids and rewritten as version 2 on open.
+class StudyRecordStore implements Closeable {
+    static final String LOG_FILE = ".studymate-records";
+    static final String SNAPSHOT_FILE = ".studymate-records.snapshot";
+
+    private static final int LOG_MAGIC = 0x534D524C; // "SMRL"
+    private static final int SNAPSHOT_MAGIC = 0x534D5253; // "SMRS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final long COMPACT_THRESHOLD_BYTES = 4L * 1024 * 1024;
+
+    private static final byte SESSION = 1;
+    private static final byte NOTE = 2;
+    private static final byte BOOKMARK = 3;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final Pending CLOSE = new Pending(-1, null);
+
+    private final Path logFile;
+    private final Path snapshotFile;
+
+    // In-memory index, guarded by this. latest holds the newest encoded body per entity
+    // so a snapshot can be written without touching the (mutable) entities.
+    private final Map<Long, StudySession> sessions = new LinkedHashMap<>();
+    private final Map<Long, StudyNote> notes = new LinkedHashMap<>();
+    private final Map<Long, MaterialBookmark> bookmarks = new LinkedHashMap<>();
+    private final Map<String, byte[]> latest = new LinkedHashMap<>();
+    private long nextId = 1;
+    private long sequence;
+
+    // While opening: the format being read and how version 1 paths become material ids
+    private int readVersion;
+    private ToLongFunction<String> materialIds;
+    private boolean upgrade;
+
+    // Writer thread state
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private FileChannel log;
+    private long logBytes;
+    private long snapshotBytes;
+
+    // Guarded by durable
+    private final Object durable = new Object();
+    private long durableSequence;
+    private IOException failure;
+
+    StudyRecordStore(Path root) {
+        this.logFile = root.resolve(LOG_FILE);
+        this.snapshotFile = root.resolve(SNAPSHOT_FILE);
+    }
+
+    // Loads the snapshot and the log tail and starts the writer
+    public synchronized void open() throws IOException {
+        open(path -> 0);
+    }
+
+    // materialIds maps the library-relative paths of version 1 records to material ids
+    public synchronized void open(ToLongFunction<String> materialIds) throws IOException {
+        this.materialIds = materialIds;
+        long covered = readSnapshot();
+        long goodBytes = replayLog(covered);
+        this.materialIds = null;
+
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (goodBytes < HEADER_BYTES) {
+            log.truncate(0);
+            log.write(header(LOG_MAGIC), 0);
+            log.force(false);
+            goodBytes = HEADER_BYTES;
+        } else if (log.size() > goodBytes) {
+            log.truncate(goodBytes);
+            log.force(false);
+        }
+        log.position(goodBytes);
+        logBytes = goodBytes;
+        synchronized (durable) {
+            durableSequence = sequence;
+        }
+        if (upgrade) {
+            rewriteAsCurrentVersion();
+        }
+
+        writer = new Thread(this::writeLoop, "record-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Returns the session's id, assigning one on its first save
+    public synchronized long save(StudySession session) {
+        if (session.getId() == 0) {
+            session.setId(nextId++);
+        }
+        sessions.put(session.getId(), session);
+        append(SESSION, PUT, "S" + session.getId(), encodeSession(session));
+        return session.getId();
+    }
+
+    public synchronized long save(StudyNote note) {
+        if (note.getId() == 0) {
+            note.setId(nextId++);
+        }
+        notes.put(note.getId(), note);
+        append(NOTE, PUT, "N" + note.getId(), encodeNote(note));
+        return note.getId();
+    }
+
+    // Bookmarks are keyed by material id; saving replaces any bookmark for the material
+    public synchronized void save(MaterialBookmark bookmark) {
+        bookmarks.put(bookmark.getMaterialId(), bookmark);
+        append(BOOKMARK, PUT, "B" + bookmark.getMaterialId(), encodeBookmark(bookmark));
+    }
+
+    public synchronized void delete(StudySession session) {
+        if (sessions.remove(session.getId()) != null) {
+            append(SESSION, DELETE, "S" + session.getId(), encodeId(session.getId()));
+        }
+    }
+
+    public synchronized void delete(StudyNote note) {
+        if (notes.remove(note.getId()) != null) {
+            append(NOTE, DELETE, "N" + note.getId(), encodeId(note.getId()));
+        }
+    }
+
+    public synchronized void delete(MaterialBookmark bookmark) {
+        if (bookmarks.remove(bookmark.getMaterialId()) != null) {
+            append(BOOKMARK, DELETE, "B" + bookmark.getMaterialId(), encodeId(bookmark.getMaterialId()));
+        }
+    }
+
+    public synchronized List<StudySession> sessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public synchronized List<StudyNote> notes() {
+        return new ArrayList<>(notes.values());
+    }
+
+    public synchronized List<MaterialBookmark> bookmarks() {
+        return new ArrayList<>(bookmarks.values());
+    }
+
+    public synchronized MaterialBookmark getBookmark(long materialId) {
+        return bookmarks.get(materialId);
+    }
+
+    // Blocks until everything saved so far is on disk; never call it on the FX thread
+    public void flush() throws IOException {
+        long target;
+        synchronized (this) {
+            target = sequence;
+        }
+        synchronized (durable) {
+            while (durableSequence < target && failure == null) {
+                try {
+                    durable.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing study records");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // Flushes, stops the writer and closes the log
+    @Override
+    public void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            queue.add(CLOSE);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+            log.close();
+        }
+    }
+
+    private void append(byte kind, byte op, String key, byte[] entity) {
+        long recordSequence = ++sequence;
+        byte[] body = body(recordSequence, kind, op, entity);
+        if (op == PUT) {
+            latest.put(key, body);
+        } else {
+            latest.remove(key);
+        }
+        queue.add(new Pending(recordSequence, frame(body)));
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            boolean closing = batch.remove(CLOSE);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+            if (closing) {
+                return;
+            }
+        }
+    }
+
+    // One write and one sync for everything that queued up since the last batch
+    private void writeBatch(List<Pending> batch) {
+        int length = 0;
+        for (Pending pending : batch) {
+            length += pending.frame.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (Pending pending : batch) {
+            buffer.put(pending.frame);
+        }
+        buffer.flip();
+        long lastSequence = batch.get(batch.size() - 1).sequence;
+        try {
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            log.force(false);
+            logBytes += length;
+            markDurable(lastSequence, null);
+            if (logBytes > COMPACT_THRESHOLD_BYTES && logBytes > snapshotBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            // The records are still in memory: drop the partly written batch and let a
+            // snapshot carry them once writing works again
+            markDurable(0, e);
+            try {
+                log.truncate(logBytes);
+                log.position(logBytes);
+                compact();
+            } catch (IOException retry) {
+                // Reported through flush()
+            }
+        }
+    }
+
+    // Writes every live entity to a new snapshot, then empties the log. The snapshot
+    // records the last sequence it covers, so log records at or below it are skipped
+    // when replaying (they may still be queued, or the truncate may not have happened).
+    private void compact() throws IOException {
+        List<byte[]> bodies;
+        long covered;
+        synchronized (this) {
+            bodies = new ArrayList<>(latest.values());
+            covered = sequence;
+        }
+
+        Path tempFile = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        long written;
+        try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(out), 1 << 16));
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(covered);
+            data.writeInt(bodies.size());
+            for (byte[] body : bodies) {
+                data.write(frame(body));
+            }
+            data.flush();
+            out.force(false);
+            written = out.size();
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.truncate(HEADER_BYTES);
+        log.position(HEADER_BYTES);
+        log.force(false);
+        logBytes = HEADER_BYTES;
+        snapshotBytes = written;
+        markDurable(covered, null);
+    }
+
+    // Replaces every record read from a version 1 file by its version 2 encoding in a
+    // new snapshot, and starts a version 2 log. Runs in open(), before the writer starts.
+    private void rewriteAsCurrentVersion() throws IOException {
+        latest.clear();
+        for (StudySession session : sessions.values()) {
+            latest.put("S" + session.getId(), body(++sequence, SESSION, PUT, encodeSession(session)));
+        }
+        for (StudyNote note : notes.values()) {
+            latest.put("N" + note.getId(), body(++sequence, NOTE, PUT, encodeNote(note)));
+        }
+        for (MaterialBookmark bookmark : bookmarks.values()) {
+            latest.put("B" + bookmark.getMaterialId(), body(++sequence, BOOKMARK, PUT, encodeBookmark(bookmark)));
+        }
+        compact();
+        log.write(header(LOG_MAGIC), 0);
+        log.force(false);
+        upgrade = false;
+    }
+
+    private void markDurable(long covered, IOException error) {
+        synchronized (durable) {
+            durableSequence = Math.max(durableSequence, covered);
+            failure = error;
+            durable.notifyAll();
+        }
+    }
+
+    // Returns the last sequence the snapshot covers (0 without a snapshot)
+    private long readSnapshot() throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (buffer.remaining() < HEADER_BYTES + 12 || buffer.getInt() != SNAPSHOT_MAGIC
+                || !readVersion(buffer.getInt())) {
+            throw new IOException("Unrecognized study records snapshot: " + snapshotFile);
+        }
+        long covered = buffer.getLong();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] body = nextBody(buffer);
+            if (body == null) {
+                throw new IOException("Corrupt study records snapshot: " + snapshotFile);
+            }
+            apply(body, 0);
+        }
+        sequence = Math.max(sequence, covered);
+        snapshotBytes = buffer.capacity();
+        return covered;
+    }
+
+    // Applies the log records after covered; returns the length of the intact prefix
+    private long replayLog(long covered) throws IOException {
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != LOG_MAGIC || !readVersion(buffer.getInt())) {
+            return 0;
+        }
+        long good = buffer.position();
+        byte[] body;
+        while ((body = nextBody(buffer)) != null) {
+            apply(body, covered);
+            good = buffer.position();
+        }
+        return good;
+    }
+
+    private boolean readVersion(int version) {
+        if (version < 1 || version > VERSION) {
+            return false;
+        }
+        readVersion = version;
+        upgrade |= version < VERSION;
+        return true;
+    }
+
+    // Next intact record body, or null at the end or at a torn record
+    private static byte[] nextBody(ByteBuffer buffer) {
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 10 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue() == checksum ? body : null;
+    }
+
+    private void apply(byte[] body, long covered) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long recordSequence = in.readLong();
+        if (recordSequence <= covered) {
+            return;
+        }
+        sequence = Math.max(sequence, recordSequence);
+        byte kind = in.readByte();
+        byte op = in.readByte();
+        switch (kind) {
+            case SESSION:
+                if (op == PUT) {
+                    StudySession session = decodeSession(in);
+                    sessions.put(session.getId(), session);
+                    latest.put("S" + session.getId(), body);
+                    nextId = Math.max(nextId, session.getId() + 1);
+                } else {
+                    long id = in.readLong();
+                    sessions.remove(id);
+                    latest.remove("S" + id);
+                }
+                break;
+            case NOTE:
+                if (op == PUT) {
+                    StudyNote note = decodeNote(in);
+                    notes.put(note.getId(), note);
+                    latest.put("N" + note.getId(), body);
+                    nextId = Math.max(nextId, note.getId() + 1);
+                } else {
+                    long id = in.readLong();
+                    notes.remove(id);
+                    latest.remove("N" + id);
+                }
+                break;
+            case BOOKMARK:
+                if (op == PUT) {
+                    MaterialBookmark bookmark = decodeBookmark(in);
+                    if (bookmark.getMaterialId() != 0) {
+                        bookmarks.put(bookmark.getMaterialId(), bookmark);
+                        latest.put("B" + bookmark.getMaterialId(), body);
+                    }
+                } else {
+                    long materialId = readVersion >= 2 ? in.readLong() : materialIds.applyAsLong(readString(in));
+                    bookmarks.remove(materialId);
+                    latest.remove("B" + materialId);
+                }
+                break;
+            default:
+                throw new IOException("Unknown study record kind " + kind);
+        }
+    }
+
+    private static byte[] encodeSession(StudySession session) {
+        return encode(out -> {
+            out.writeLong(session.getId());
+            out.writeLong(session.getMaterialId());
+            writeString(out, session.getMaterialName());
+            writeTime(out, session.getStartTime());
+            writeTime(out, session.getEndTime());
+            out.writeLong(session.getDurationMinutes());
+        });
+    }
+
+    private StudySession decodeSession(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long materialId = readVersion >= 2 ? in.readLong() : 0;
+        String materialName = readString(in);
+        if (readVersion < 2) {
+            materialId = materialIds.applyAsLong(materialName);
+        }
+        LocalDateTime start = readTime(in);
+        LocalDateTime end = readTime(in);
+        return new StudySession(id, materialId, materialName, start, end, in.readLong());
+    }
+
+    private static byte[] encodeNote(StudyNote note) {
+        return encode(out -> {
+            out.writeLong(note.getId());
+            out.writeLong(note.getMaterialId());
+            writeString(out, note.getTitle());
+            writeString(out, note.getContent());
+            writeString(out, note.getAssociatedMaterial());
+            writeTime(out, note.getCreated());
+            writeTime(out, note.getLastModified());
+        });
+    }
+
+    private StudyNote decodeNote(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long materialId = readVersion >= 2 ? in.readLong() : 0;
+        String title = readString(in);
+        String content = readString(in);
+        String associatedMaterial = readString(in);
+        if (readVersion < 2 && associatedMaterial != null) {
+            materialId = materialIds.applyAsLong(associatedMaterial);
+        }
+        LocalDateTime created = readTime(in);
+        return new StudyNote(id, materialId, title, content, associatedMaterial, created, readTime(in));
+    }
+
+    private static byte[] encodeBookmark(MaterialBookmark bookmark) {
+        return encode(out -> {
+            out.writeLong(bookmark.getMaterialId());
+            writeString(out, bookmark.getMaterialPath());
+            writeString(out, bookmark.getCustomName());
+            writeString(out, bookmark.getNotes());
+            out.writeByte(bookmark.getPriority());
+            writeTime(out, bookmark.getBookmarked());
+        });
+    }
+
+    // A version 1 bookmark whose path is no longer in the library decodes with id 0 and
+    // is dropped: bookmarks are keyed by material id
+    private MaterialBookmark decodeBookmark(DataInputStream in) throws IOException {
+        long materialId = readVersion >= 2 ? in.readLong() : 0;
+        String materialPath = readString(in);
+        if (readVersion < 2) {
+            materialId = materialIds.applyAsLong(materialPath);
+        }
+        String customName = readString(in);
+        String bookmarkNotes = readString(in);
+        int priority = in.readByte();
+        return new MaterialBookmark(materialId, materialPath, customName, bookmarkNotes, priority, readTime(in));
+    }
+
+    private static byte[] encodeId(long id) {
+        return encode(out -> out.writeLong(id));
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            encoder.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] body(long recordSequence, byte kind, byte op, byte[] entity) {
+        ByteBuffer body = ByteBuffer.allocate(10 + entity.length);
+        body.putLong(recordSequence).put(kind).put(op).put(entity);
+        return body.array();
+    }
+
+    private static byte[] frame(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        ByteBuffer frame = ByteBuffer.allocate(8 + body.length);
+        frame.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        return frame.array();
+    }
+
+    private static ByteBuffer header(int magic) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(magic).putInt(VERSION).flip();
+        return header;
+    }
+
+    // Length-prefixed UTF-8; unlike writeUTF it has no 64 KB limit (long notes)
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time != null ? LibraryCatalog.toEpochMillis(time) : NO_TIME);
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long millis = in.readLong();
+        return millis != NO_TIME ? LibraryCatalog.fromEpochMillis(millis) : null;
+    }
+
+    private static final class Pending {
+        final long sequence;
+        final byte[] frame;
+
+        Pending(long sequence, byte[] frame) {
+            this.sequence = sequence;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.studymate;
+
+import java.time.LocalDateTime;
+
+// Study Session Tracker (Additional Feature)
+class StudySession {
+    private long id; // assigned by StudyRecordStore on first save
+    private long materialId; // StudyMaterial id, 0 if unknown
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private String materialName;
+    private long durationMinutes;
+    
+    public StudySession(String materialName) {
+        this.materialName = materialName;
+        this.startTime = LocalDateTime.now();
+    }
+    
+    // Restores a stored session
+    StudySession(long id, long materialId, String materialName, LocalDateTime startTime, LocalDateTime endTime,
+                 long durationMinutes) {
+        this.id = id;
+        this.materialId = materialId;
+        this.materialName = materialName;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.durationMinutes = durationMinutes;
+    }
+    
+    public void endSession() {
+        this.endTime = LocalDateTime.now();
+        this.durationMinutes = java.time.Duration.between(startTime, endTime).toMinutes();
+    }
+    
+    // Getters
+    public long getId() { return id; }
+    void setId(long id) { this.id = id; }
+    public long getMaterialId() { return materialId; }
+    void setMaterialId(long materialId) { this.materialId = materialId; }
+    public LocalDateTime getStartTime() { return startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+    public String getMaterialName() { return materialName; }
+    public long getDurationMinutes() { return durationMinutes; }
+    
+    public String getFormattedDuration() {
+        if (durationMinutes < 60) {
+            return durationMinutes + " min";
+        } else {
+            long hours = durationMinutes / 60;
+            long minutes = durationMinutes % 60;
+            return hours + "h " + minutes + "m";
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.studymate;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Mirrors the study directory to a BlobStore. Files are split into content-defined chunks
+// stored once under their SHA-256 ("chunks/<hash>"); each file gets a small recipe
+// ("files/<relative path>") listing its chunks, written after all of them are up. An
+// edited file only uploads the chunks that changed, identical files share chunks, and
+// the SyncManifest lets an interrupted sync resume. Files are uploaded on a bounded
+// worker pool, all workers sharing one bandwidth limit. Chunk uploads are timed in
+// Metrics ("sync.chunkUpload"), throttling excluded.
+class SyncEngine {
+    static final String CHUNK_PREFIX = "chunks/";
+    static final String FILE_PREFIX = "files/";
+    // Uploads wait on the network, not the CPU
+    static final int DEFAULT_WORKERS = 4;
+    private static final Metrics.Timer CHUNK_UPLOAD_TIME = Metrics.global().timer("sync.chunkUpload");
+
+    private final Path root;
+    private final BlobStore store;
+    private final int workerCount;
+    private final Throttle throttle;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    SyncEngine(Path root, BlobStore store) {
+        this(root, store, DEFAULT_WORKERS, 0);
+    }
+
+    // bytesPerSecond limits the upload rate of all workers together; 0 means no limit
+    SyncEngine(Path root, BlobStore store, int workerCount, long bytesPerSecond) {
+        this.root = root;
+        this.store = store;
+        this.workerCount = workerCount;
+        this.throttle = new Throttle(bytesPerSecond);
+    }
+
+    // Listener callbacks are invoked from the worker threads
+    interface Listener {
+        void onProgress(int completed, int total, long bytesUploaded);
+        void onFailure(Path file, IOException error);
+    }
+
+    // Stops starting new chunks; the files already done stay recorded for the next sync
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    // Uploads new and changed files and removes the recipes of files that are gone.
+    // Blocks until done; unchanged files cost one stat each.
+    public SyncSummary sync(Collection<Path> files, Listener listener) throws IOException {
+        long started = System.nanoTime();
+        SyncSummary summary = new SyncSummary();
+        try (SyncManifest manifest = new SyncManifest(root)) {
+            manifest.open();
+            Set<String> remaining = manifest.files();
+            int total = files.size();
+            AtomicInteger completed = new AtomicInteger();
+
+            Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+            ThreadPoolExecutor workers = new ThreadPoolExecutor(workerCount, workerCount, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workerCount * 64), r -> {
+                    Thread thread = new Thread(r, "sync-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+            try {
+                for (Path file : files) {
+                    if (cancelled.get()) {
+                        break;
+                    }
+                    String relativePath = key(file);
+                    remaining.remove(relativePath);
+                    workers.execute(() -> {
+                        try {
+                            if (!cancelled.get()) {
+                                upload(file, relativePath, manifest, inFlight, summary);
+                            }
+                        } catch (IOException e) {
+                            if (!cancelled.get()) {
+                                summary.failed.incrementAndGet();
+                                Metrics.global().error("sync", file + ": " + e.getMessage());
+                                listener.onFailure(file, e);
+                            }
+                        }
+                        listener.onProgress(completed.incrementAndGet(), total, summary.bytesUploaded.get());
+                    });
+                }
+            } finally {
+                workers.shutdown();
+                try {
+                    while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                        // keep waiting; cancellation makes the remaining tasks return quickly
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if (!cancelled.get()) {
+                for (String relativePath : remaining) {
+                    store.delete(FILE_PREFIX + relativePath);
+                    manifest.removeFile(relativePath);
+                    summary.removed.incrementAndGet();
+                }
+                manifest.compact();
+            }
+        }
+        summary.elapsedNanos = System.nanoTime() - started;
+        summary.cancelled = cancelled.get();
+        return summary;
+    }
+
+    // inFlight holds the chunks being uploaded right now: a file sharing a chunk with
+    // another one waits for that upload instead of sending the chunk a second time
+    private void upload(Path file, String relativePath, SyncManifest manifest,
+                        Map<String, CompletableFuture<Void>> inFlight, SyncSummary summary) throws IOException {
+        BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = before.size();
+        long modified = before.lastModifiedTime().toMillis();
+        SyncManifest.FileState uploaded = manifest.file(relativePath);
+        if (uploaded != null && uploaded.size == size && uploaded.modified == modified) {
+            summary.unchanged.incrementAndGet();
+            return;
+        }
+
+        MessageDigest digest = newDigest();
+        List<String> chunks = new ArrayList<>();
+        ContentChunker.split(file, (data, length) -> {
+            if (cancelled.get()) {
+                throw new InterruptedIOException("Sync cancelled");
+            }
+            digest.update(data, 0, length);
+            String hash = SyncManifest.toHex(digest.digest());
+            chunks.add(hash);
+            // Known from an earlier sync, or already in the bucket (e.g. uploaded from
+            // another computer or before the manifest was lost)
+            if (manifest.hasChunk(hash)) {
+                summary.chunksReused.incrementAndGet();
+                return;
+            }
+            CompletableFuture<Void> upload = new CompletableFuture<>();
+            CompletableFuture<Void> other = inFlight.putIfAbsent(hash, upload);
+            if (other != null) {
+                awaitUpload(other, hash);
+                summary.chunksReused.incrementAndGet();
+                return;
+            }
+            try {
+                if (store.exists(CHUNK_PREFIX + hash)) {
+                    summary.chunksReused.incrementAndGet();
+                } else {
+                    throttle.acquire(length);
+                    long started = System.nanoTime();
+                    store.put(CHUNK_PREFIX + hash, data, length);
+                    CHUNK_UPLOAD_TIME.since(started);
+                    summary.chunksUploaded.incrementAndGet();
+                    summary.bytesUploaded.addAndGet(length);
+                }
+                manifest.addChunk(hash);
+                upload.complete(null);
+            } catch (IOException | RuntimeException e) {
+                upload.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(hash);
+            }
+        });
+
+        // A file that is still being written is picked up by the next sync instead
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() != size || after.lastModifiedTime().toMillis() != modified) {
+            throw new IOException("Changed while syncing: " + file);
+        }
+        byte[] recipe = new JSONObject()
+            .put("size", size)
+            .put("modified", modified)
+            .put("chunks", new JSONArray(chunks))
+            .toString()
+            .getBytes(StandardCharsets.UTF_8);
+        store.put(FILE_PREFIX + relativePath, recipe, recipe.length);
+        manifest.commitFile(relativePath, new SyncManifest.FileState(size, modified, chunks));
+        summary.uploaded.incrementAndGet();
+    }
+
+    private static void awaitUpload(CompletableFuture<Void> upload, String hash) throws IOException {
+        try {
+            upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Sync interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Upload of chunk " + hash + " failed", e.getCause());
+        }
+    }
+
+    // Object keys use '/' whatever the platform separator
+    private String key(Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Paces uploads to a byte rate by handing out send times; a worker sleeps until its
+    // turn, so the limit holds however many workers there are
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private long nextSendNanos;
+
+        Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void acquire(long bytes) throws InterruptedIOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (nextSendNanos < now) {
+                    nextSendNanos = now;
+                }
+                waitNanos = nextSendNanos - now;
+                nextSendNanos += bytes * 1_000_000_000L / bytesPerSecond;
+            }
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Sync interrupted");
+                }
+            }
+        }
+    }
+
+    static final class SyncSummary {
+        final AtomicInteger uploaded = new AtomicInteger();
+        final AtomicInteger unchanged = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger chunksUploaded = new AtomicInteger();
+        final AtomicInteger chunksReused = new AtomicInteger();
+        final AtomicLong bytesUploaded = new AtomicLong();
+        long elapsedNanos;
+        boolean cancelled;
+
+        double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (bytesUploaded.get() / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d files (%d unchanged, %d removed, %d failed) • %d of %d chunks sent • %.1f MB/s",
+                cancelled ? "Cancelled after syncing" : "Synced", uploaded.get(), unchanged.get(), removed.get(),
+                failed.get(), chunksUploaded.get(), chunksUploaded.get() + chunksReused.get(), megabytesPerSecond());
+        }
+    }
+}
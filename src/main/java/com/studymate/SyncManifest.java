@@ -0,0 +1,259 @@
+package com.studymate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Local record of what the bucket already holds: the chunks uploaded so far and, for
+// every file whose upload completed, its size, modification time and chunk list. Records
+// are appended as uploads finish, so an interrupted sync resumes where it stopped: done
+// files are skipped by size and mtime, and chunks of a half-uploaded file are not sent
+// again. After a complete sync the log is rewritten to just the current state.
+//
+// Record: int body length, int CRC-32 of the body, then the body: byte kind and its
+// fields. Reading stops at the first torn or corrupt record.
+class SyncManifest implements Closeable {
+    static final String MANIFEST_FILE = ".studymate-sync";
+
+    private static final int MAGIC = 0x534D5343; // "SMSC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int HASH_BYTES = 32;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final byte CHUNK = 'C';
+    private static final byte FILE = 'F';
+    private static final byte REMOVED = 'R';
+
+    private final Path manifestFile;
+    private final Set<String> chunks = new HashSet<>();
+    private final Map<String, FileState> files = new HashMap<>();
+    private FileChannel log;
+    private DataOutputStream out;
+
+    SyncManifest(Path root) {
+        this.manifestFile = root.resolve(MANIFEST_FILE);
+    }
+
+    public synchronized void open() throws IOException {
+        long good = 0;
+        if (Files.exists(manifestFile)) {
+            good = replay(ByteBuffer.wrap(Files.readAllBytes(manifestFile)));
+        }
+        log = FileChannel.open(manifestFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (good == 0) {
+            // Missing, foreign or unreadable: start over; the bucket is re-checked chunk by chunk
+            chunks.clear();
+            files.clear();
+            good = HEADER_BYTES;
+            log.truncate(0);
+            log.write(header(), 0);
+        }
+        log.truncate(good);
+        log.position(good);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(log), 1 << 16));
+    }
+
+    public synchronized boolean hasChunk(String hash) {
+        return chunks.contains(hash);
+    }
+
+    public synchronized void addChunk(String hash) throws IOException {
+        if (chunks.add(hash)) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1 + HASH_BYTES);
+            body.write(CHUNK);
+            writeHash(body, hash);
+            append(body.toByteArray());
+        }
+    }
+
+    public synchronized FileState file(String relativePath) {
+        return files.get(relativePath);
+    }
+
+    public synchronized Set<String> files() {
+        return new HashSet<>(files.keySet());
+    }
+
+    // The file's recipe is in the bucket
+    public synchronized void commitFile(String relativePath, FileState state) throws IOException {
+        files.put(relativePath, state);
+        append(encodeFile(relativePath, state));
+    }
+
+    public synchronized void removeFile(String relativePath) throws IOException {
+        if (files.remove(relativePath) != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bytes);
+            body.writeByte(REMOVED);
+            body.writeUTF(relativePath);
+            append(bytes.toByteArray());
+        }
+    }
+
+    // Rewrites the manifest as the current state only, dropping superseded records
+    public synchronized void compact() throws IOException {
+        Path temp = manifestFile.resolveSibling(MANIFEST_FILE + ".tmp");
+        try (DataOutputStream snapshot = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            snapshot.write(header().array());
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1 + HASH_BYTES);
+            for (String hash : chunks) {
+                body.reset();
+                body.write(CHUNK);
+                writeHash(body, hash);
+                snapshot.write(frame(body.toByteArray()));
+            }
+            for (Map.Entry<String, FileState> file : files.entrySet()) {
+                snapshot.write(frame(encodeFile(file.getKey(), file.getValue())));
+            }
+        }
+        out.flush();
+        log.close();
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(manifestFile, StandardOpenOption.WRITE);
+        log.force(false);
+        log.position(log.size());
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(log), 1 << 16));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.flush();
+            log.force(false);
+            log.close();
+            out = null;
+            log = null;
+        }
+    }
+
+    // Each record reaches the OS right away, so a killed process loses nothing; close()
+    // makes it durable
+    private void append(byte[] body) throws IOException {
+        out.write(frame(body));
+        out.flush();
+    }
+
+    // Returns the length of the intact prefix, or 0 if the header is not ours
+    private long replay(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            byte[] body = new byte[length];
+            buffer.get(body);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            try {
+                apply(new DataInputStream(new ByteArrayInputStream(body)));
+            } catch (IOException e) {
+                return start;
+            }
+        }
+        return buffer.position();
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case CHUNK:
+                chunks.add(readHash(in));
+                break;
+            case FILE: {
+                String relativePath = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                String[] fileChunks = new String[in.readInt()];
+                for (int i = 0; i < fileChunks.length; i++) {
+                    fileChunks[i] = readHash(in);
+                }
+                files.put(relativePath, new FileState(size, modified, Arrays.asList(fileChunks)));
+                break;
+            }
+            case REMOVED:
+                files.remove(in.readUTF());
+                break;
+            default:
+                throw new IOException("Unknown sync manifest record: " + kind);
+        }
+    }
+
+    private static byte[] encodeFile(String relativePath, FileState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + state.chunks.size() * HASH_BYTES);
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(FILE);
+        body.writeUTF(relativePath);
+        body.writeLong(state.size);
+        body.writeLong(state.modified);
+        body.writeInt(state.chunks.size());
+        for (String hash : state.chunks) {
+            writeHash(body, hash);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    private static byte[] frame(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        ByteBuffer frame = ByteBuffer.allocate(8 + body.length);
+        frame.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        return frame.array();
+    }
+
+    // Hashes are kept as lower-case hex (they double as object keys) and stored as bytes
+    private static void writeHash(OutputStream out, String hash) throws IOException {
+        for (int i = 0; i < HASH_BYTES; i++) {
+            out.write(Integer.parseInt(hash.substring(i * 2, i * 2 + 2), 16));
+        }
+    }
+
+    private static String readHash(DataInputStream in) throws IOException {
+        byte[] hash = new byte[HASH_BYTES];
+        in.readFully(hash);
+        return toHex(hash);
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    // A file as it was uploaded
+    static final class FileState {
+        final long size;
+        final long modified;
+        final List<String> chunks;
+
+        FileState(long size, long modified, List<String> chunks) {
+            this.size = size;
+            this.modified = modified;
+            this.chunks = chunks;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.studymate;
+
+import javafx.beans.binding.Bindings;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Side panel list of the running and recently finished UiTaskExecutor tasks: a title,
+// a status line and a progress bar each, with a cancel button while a cancellable task
+// runs. A task with failures stays until dismissed; its report opens in a window that
+// does not block the app, and a follow-up the task offers (e.g. a retry) is a button.
+class TaskPanel extends VBox {
+    private static final int REPORT_PREVIEW = 10;
+
+    private final UiTaskExecutor executor;
+    private final Map<UiTaskExecutor.Task, VBox> rows = new HashMap<>();
+
+    TaskPanel(UiTaskExecutor executor) {
+        super(10);
+        this.executor = executor;
+        visibleProperty().bind(Bindings.isNotEmpty(executor.getVisibleTasks()));
+        managedProperty().bind(visibleProperty());
+        executor.getVisibleTasks().addListener((ListChangeListener<UiTaskExecutor.Task>) change -> {
+            while (change.next()) {
+                for (UiTaskExecutor.Task task : change.getRemoved()) {
+                    getChildren().remove(rows.remove(task));
+                }
+                for (UiTaskExecutor.Task task : change.getAddedSubList()) {
+                    VBox row = createRow(task);
+                    rows.put(task, row);
+                    getChildren().add(row);
+                }
+            }
+        });
+    }
+
+    private VBox createRow(UiTaskExecutor.Task task) {
+        Label titleLabel = new Label(task.getTitle());
+        titleLabel.setFont(Font.font("Segoe UI", FontWeight.BOLD, 12));
+        titleLabel.setTextFill(Color.WHITE);
+        titleLabel.setMaxWidth(200);
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        Button cancelButton = createButton("✖ Cancel", "#c0392b");
+        cancelButton.setOnAction(e -> task.cancel());
+        cancelButton.visibleProperty().bind(Bindings.createBooleanBinding(
+            () -> task.isCancellable() && task.state.get() == UiTaskExecutor.State.RUNNING, task.state));
+        cancelButton.managedProperty().bind(cancelButton.visibleProperty());
+
+        Button dismissButton = createButton("✖", "#7f8c8d");
+        dismissButton.setOnAction(e -> executor.dismiss(task));
+        dismissButton.visibleProperty().bind(task.state.isNotEqualTo(UiTaskExecutor.State.RUNNING));
+        dismissButton.managedProperty().bind(dismissButton.visibleProperty());
+
+        Button actionButton = createButton("", "#27ae60");
+        actionButton.textProperty().bind(task.actionLabel);
+        actionButton.setOnAction(e -> task.runAction());
+        actionButton.visibleProperty().bind(task.actionLabel.isNotEmpty()
+            .and(task.state.isNotEqualTo(UiTaskExecutor.State.RUNNING)));
+        actionButton.managedProperty().bind(actionButton.visibleProperty());
+
+        HBox header = new HBox(6, titleLabel, spacer, actionButton, cancelButton, dismissButton);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        Label statusLabel = new Label();
+        statusLabel.setFont(Font.font("Segoe UI", FontWeight.NORMAL, 11));
+        statusLabel.setTextFill(Color.web("#ecf0f1"));
+        statusLabel.setWrapText(true);
+        statusLabel.setMaxWidth(240);
+        statusLabel.textProperty().bind(task.statusText);
+        statusLabel.visibleProperty().bind(task.statusText.isNotEmpty());
+        statusLabel.managedProperty().bind(statusLabel.visibleProperty());
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(240);
+        progressBar.progressProperty().bind(task.progress);
+        progressBar.styleProperty().bind(Bindings.when(task.failureCount.greaterThan(0))
+            .then("-fx-accent: #e74c3c;").otherwise("-fx-accent: #3498db;"));
+
+        Hyperlink failuresLink = new Hyperlink();
+        failuresLink.setTextFill(Color.web("#f1948a"));
+        failuresLink.textProperty().bind(Bindings.format("⚠ %d failed - show details", task.failureCount));
+        failuresLink.visibleProperty().bind(task.failureCount.greaterThan(0));
+        failuresLink.managedProperty().bind(failuresLink.visibleProperty());
+        failuresLink.setOnAction(e -> showReport(task));
+
+        return new VBox(4, header, statusLabel, progressBar, failuresLink);
+    }
+
+    // Non-modal: the app keeps running while the report is open
+    private static void showReport(UiTaskExecutor.Task task) {
+        List<UiTaskExecutor.Failure> failures = task.getFailures();
+        StringBuilder preview = new StringBuilder();
+        for (int i = 0; i < Math.min(REPORT_PREVIEW, failures.size()); i++) {
+            preview.append("• ").append(failures.get(i)).append('\n');
+        }
+        if (failures.size() > REPORT_PREVIEW) {
+            preview.append("… and ").append(failures.size() - REPORT_PREVIEW).append(" more");
+        }
+        StringBuilder all = new StringBuilder();
+        for (UiTaskExecutor.Failure failure : failures) {
+            all.append(failure).append('\n');
+        }
+
+        Alert report = new Alert(Alert.AlertType.ERROR);
+        report.setTitle(task.getTitle());
+        report.setHeaderText(failures.size() + " item(s) failed");
+        report.setContentText(preview.toString());
+        TextArea details = new TextArea(all.toString());
+        details.setEditable(false);
+        details.setWrapText(true);
+        report.getDialogPane().setExpandableContent(details);
+        report.show();
+    }
+
+    private static Button createButton(String text, String color) {
+        Button button = new Button(text);
+        button.setStyle("-fx-background-color: " + color + "; -fx-text-fill: white; " +
+                        "-fx-font-size: 10; -fx-padding: 2 6; -fx-background-radius: 4;");
+        return button;
+    }
+}
@@ -0,0 +1,55 @@
+package com.studymate;
+
+import java.util.*;
+
+// Splits text into lower-case word tokens for the search indexes
+final class TextTokenizer {
+    private static final int MIN_LENGTH = 2;
+    private static final int MAX_LENGTH = 40;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "was", "our",
+        "has", "have", "this", "that", "with", "from", "they", "will", "into", "its", "of",
+        "to", "in", "is", "it", "on", "as", "at", "be", "by", "or", "an", "we", "if", "so"));
+
+    private TextTokenizer() {
+    }
+
+    interface TokenConsumer {
+        void accept(String token, int position);
+    }
+
+    public static List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (token, position) -> tokens.add(token));
+        return tokens;
+    }
+
+    public static Map<String, Integer> termFrequencies(CharSequence text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokenize(text, (token, position) -> frequencies.merge(token, 1, Integer::sum));
+        return frequencies;
+    }
+
+    // Positions count every emitted token, so phrase matching can compare them directly
+    public static void tokenize(CharSequence text, TokenConsumer consumer) {
+        StringBuilder current = new StringBuilder(MAX_LENGTH);
+        int position = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (current.length() < MAX_LENGTH) {
+                    current.append(Character.toLowerCase(c));
+                }
+            } else if (current.length() > 0) {
+                if (current.length() >= MIN_LENGTH) {
+                    String token = current.toString();
+                    if (!STOP_WORDS.contains(token)) {
+                        consumer.accept(token, position++);
+                    }
+                }
+                current.setLength(0);
+            }
+        }
+    }
+}
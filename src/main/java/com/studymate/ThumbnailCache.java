@@ -0,0 +1,326 @@
+package com.studymate;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Two-tier cache of list thumbnails: a memory LRU bounded by pixel bytes, backed by PNG
+// files on disk keyed by path and modification time (a changed file simply misses).
+// Thumbnails are rendered on a small background pool. The most recent request runs
+// first, so cells that just scrolled into view win over older ones, and a cell cancels
+// its request as soon as it is reused for another material.
+class ThumbnailCache {
+    static final int THUMBNAIL_SIZE = 48;
+
+    private static final long MEMORY_LIMIT_BYTES = 32L * 1024 * 1024;
+    private static final long DISK_LIMIT_BYTES = 256L * 1024 * 1024;
+    // The disk tier is trimmed at startup and again after this much has been written
+    private static final long TRIM_AFTER_BYTES = 32L * 1024 * 1024;
+
+    interface Request {
+        void cancel();
+    }
+
+    private final Path diskDirectory;
+    private final ThreadPoolExecutor renderers;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong bytesSinceTrim = new AtomicLong();
+    private final LinkedHashMap<File, Image> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    ThumbnailCache(Path diskDirectory) {
+        this.diskDirectory = diskDirectory;
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.renderers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "thumbnail-renderer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        renderers.allowCoreThreadTimeOut(true);
+        scheduleTrim();
+    }
+
+    // Queued behind every thumbnail request
+    private void scheduleTrim() {
+        renderers.execute(new RenderTask(Long.MIN_VALUE, this::trimDisk));
+    }
+
+    static boolean supports(Category category) {
+        return category == Category.IMAGES || category == Category.PDF;
+    }
+
+    // Memory-only lookup, safe to call from updateItem
+    public synchronized Image getIfCached(File file) {
+        return memory.get(file);
+    }
+
+    // Loads the thumbnail in the background; the callback runs on the FX thread and is
+    // skipped if the request was cancelled or no thumbnail could be made
+    public Request load(StudyMaterial material, Consumer<Image> callback) {
+        File file = material.getFile();
+        Category category = material.getCategory();
+        RenderTask task = new RenderTask(sequence.incrementAndGet(), null);
+        task.work = () -> {
+            Image image = loadOrRender(file, category, task);
+            if (image != null && !task.cancelled) {
+                Platform.runLater(() -> {
+                    if (!task.cancelled) {
+                        callback.accept(image);
+                    }
+                });
+            }
+        };
+        renderers.execute(task);
+        return task;
+    }
+
+    // Drops the memory copy after a file changed; the disk copy misses on its new mtime
+    public synchronized void invalidate(Collection<File> files) {
+        for (File file : files) {
+            Image image = memory.remove(file);
+            if (image != null) {
+                memoryBytes -= weight(image);
+            }
+        }
+    }
+
+    public void shutdown() {
+        renderers.shutdownNow();
+    }
+
+    private Image loadOrRender(File file, Category category, RenderTask task) {
+        Image cached = getIfCached(file);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Path diskFile = diskDirectory.resolve(diskKey(file, attrs.lastModifiedTime().toMillis()) + ".png");
+
+            BufferedImage thumbnail = null;
+            if (Files.exists(diskFile)) {
+                thumbnail = ImageIO.read(diskFile.toFile());
+                Files.setLastModifiedTime(diskFile, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+            if (thumbnail == null) {
+                if (task.cancelled) {
+                    return null;
+                }
+                thumbnail = category == Category.PDF ? renderPdf(file) : renderImage(file);
+                if (thumbnail == null) {
+                    return null;
+                }
+                writeToDisk(thumbnail, diskFile);
+            }
+
+            Image image = toFxImage(thumbnail);
+            remember(file, image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or unsupported file: the cell keeps its category icon
+            return null;
+        }
+    }
+
+    private synchronized void remember(File file, Image image) {
+        Image previous = memory.put(file, image);
+        if (previous != null) {
+            memoryBytes -= weight(previous);
+        }
+        memoryBytes += weight(image);
+        Iterator<Image> eldest = memory.values().iterator();
+        while (memoryBytes > MEMORY_LIMIT_BYTES && eldest.hasNext()) {
+            memoryBytes -= weight(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long weight(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    private static BufferedImage renderPdf(File file) throws IOException {
+        try (PDDocument document = PDDocument.load(file)) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            PDRectangle box = document.getPage(0).getCropBox();
+            float scale = THUMBNAIL_SIZE / Math.max(box.getWidth(), box.getHeight());
+            return scaleToFit(new PDFRenderer(document).renderImage(0, scale, ImageType.RGB));
+        }
+    }
+
+    // Decodes with source subsampling so a large photo is never loaded at full size
+    private static BufferedImage renderImage(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longest / (THUMBNAIL_SIZE * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return scaleToFit(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage source) {
+        double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static Image toFxImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        WritableImage fxImage = new WritableImage(width, height);
+        fxImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return fxImage;
+    }
+
+    private void writeToDisk(BufferedImage thumbnail, Path diskFile) {
+        try {
+            Files.createDirectories(diskDirectory);
+            Path tempFile = Files.createTempFile(diskDirectory, "thumb", ".tmp");
+            try {
+                ImageIO.write(thumbnail, "png", tempFile.toFile());
+                long size = Files.size(tempFile);
+                Files.move(tempFile, diskFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // Only the writer that resets the count schedules the trim
+                if (bytesSinceTrim.addAndGet(size) >= TRIM_AFTER_BYTES
+                        && bytesSinceTrim.getAndSet(0) >= TRIM_AFTER_BYTES) {
+                    scheduleTrim();
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            // The disk tier is best effort; the thumbnail is still kept in memory
+        }
+    }
+
+    // Keeps the disk tier under its limit by deleting the least recently used files
+    private void trimDisk() {
+        if (!Files.isDirectory(diskDirectory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory)) {
+            for (Path file : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                files.add(file);
+                attributes.put(file, attrs);
+                total += attrs.size();
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (total <= DISK_LIMIT_BYTES) {
+            return;
+        }
+        files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+        for (Path file : files) {
+            if (total <= DISK_LIMIT_BYTES * 3 / 4) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file);
+                total -= attributes.get(file).size();
+            } catch (IOException e) {
+                // Try the next one
+            }
+        }
+    }
+
+    private static String diskKey(File file, long modified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((file.getAbsolutePath() + '|' + modified).getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Newest request first; cancelled tasks are skipped when they reach the head of the queue
+    private static final class RenderTask implements Runnable, Comparable<RenderTask>, Request {
+        final long order;
+        Runnable work;
+        volatile boolean cancelled;
+
+        RenderTask(long order, Runnable work) {
+            this.order = order;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            if (!cancelled) {
+                work.run();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(RenderTask other) {
+            return Long.compare(other.order, order);
+        }
+    }
+}
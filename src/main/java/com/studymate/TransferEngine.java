@@ -0,0 +1,202 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Moves and copies files for import and auto-organize. Moves on the same file system
+// are plain renames; everything else is streamed with FileChannel.transferTo into a
+// ".part" file that survives interruption, so a later attempt resumes where it stopped.
+// An existing target is never replaced: the transfer fails with a
+// FileAlreadyExistsException instead, which callers report as a name conflict.
+// Transfers run concurrently, limited per device (FileStore) so one slow disk or
+// network mount does not get flooded. Every transfer is timed in Metrics.
+class TransferEngine {
+    static final String PARTIAL_SUFFIX = ".part";
+
+    private static final Metrics.Timer RENAME_TIME = Metrics.global().timer("transfer.rename");
+    private static final Metrics.Timer COPY_TIME = Metrics.global().timer("transfer.copy");
+    private static final Metrics.Timer SLOT_WAIT_TIME = Metrics.global().timer("transfer.slotWait");
+    private static final LongAdder BYTES_COPIED = Metrics.global().counter("transfer.bytesCopied");
+
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int DEFAULT_PER_DEVICE = 4;
+    private static final int RESUME_CHECK_BYTES = 64 * 1024;
+
+    private final int perDeviceLimit;
+    private final Map<FileStore, Semaphore> deviceSlots = new ConcurrentHashMap<>();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final long startedNanos = System.nanoTime();
+
+    TransferEngine() {
+        this(DEFAULT_PER_DEVICE);
+    }
+
+    TransferEngine(int perDeviceLimit) {
+        this.perDeviceLimit = perDeviceLimit;
+    }
+
+    public void copy(Path source, Path target) throws IOException {
+        transfer(source, target, false, false);
+    }
+
+    // A target that is another name of the same file is a conflict too: with duplicate
+    // imports stored as hard links, it may belong to a different material
+    public void move(Path source, Path target) throws IOException {
+        transfer(source, target, true, false);
+    }
+
+    // For a move that a journal records as started but not finished: a target that is a
+    // hard link to the source is taken as the first half of this move's rename
+    public void resumeMove(Path source, Path target) throws IOException {
+        transfer(source, target, true, true);
+    }
+
+    private void transfer(Path source, Path target, boolean move, boolean resuming) throws IOException {
+        long started = System.nanoTime();
+        if (move && sameFileStore(source, target.getParent())) {
+            // Same device: a rename, no data is copied
+            rename(source, target, resuming);
+            RENAME_TIME.since(started);
+            return;
+        }
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw conflict(target);
+        }
+
+        Semaphore slots = slotsFor(target.getParent());
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Transfer interrupted: " + source);
+        }
+        SLOT_WAIT_TIME.since(started);
+        long copyStarted = System.nanoTime();
+        try {
+            streamCopy(source, target);
+        } finally {
+            slots.release();
+        }
+        COPY_TIME.since(copyStarted);
+        if (move) {
+            Files.delete(source);
+        }
+    }
+
+    // Copies through a resumable partial file and renames it into place when complete
+    private void streamCopy(Path source, Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + PARTIAL_SUFFIX);
+        long size = Files.size(source);
+
+        // A leftover partial file (e.g. after a crash) is resumed if its tail still matches the source
+        long position = 0;
+        if (Files.exists(partial)) {
+            long existing = Files.size(partial);
+            if (existing <= size && tailMatches(source, partial, existing)) {
+                position = existing;
+            } else {
+                Files.delete(partial);
+            }
+        }
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.position(position);
+            while (position < size) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Transfer interrupted: " + source);
+                }
+                long transferred = in.transferTo(position, Math.min(CHUNK_SIZE, size - position), out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                bytesTransferred.addAndGet(transferred);
+                BYTES_COPIED.add(transferred);
+            }
+            out.force(false);
+        }
+
+        if (position < size) {
+            throw new IOException("Source changed during transfer: " + source);
+        }
+        // No material owns a partial file, so a link left by an interrupted rename is ours
+        rename(partial, target, true);
+    }
+
+    // Renames without replacing an existing target. The new name is made a hard link,
+    // which fails if the name is taken, and the old name is removed once the link exists.
+    // If resuming, a target that already links to the same file is the link left by an
+    // interrupted rename, which is finished. File systems without hard links get a plain
+    // Files.move, which checks for the target first.
+    private static void rename(Path from, Path to, boolean resuming) throws IOException {
+        try {
+            Files.createLink(to, from);
+        } catch (FileAlreadyExistsException e) {
+            if (!resuming || !Files.isSameFile(from, to)) {
+                throw conflict(to);
+            }
+        } catch (UnsupportedOperationException | IOException e) {
+            try {
+                Files.move(from, to);
+            } catch (FileAlreadyExistsException exists) {
+                throw conflict(to);
+            }
+            return;
+        }
+        Files.delete(from);
+    }
+
+    private static FileAlreadyExistsException conflict(Path target) {
+        return new FileAlreadyExistsException(target.toString(), null, "another file already has this name");
+    }
+
+    private static boolean tailMatches(Path source, Path partial, long length) throws IOException {
+        int checked = (int) Math.min(RESUME_CHECK_BYTES, length);
+        ByteBuffer expected = ByteBuffer.allocate(checked);
+        ByteBuffer actual = ByteBuffer.allocate(checked);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.READ)) {
+            readFully(in, expected, length - checked);
+            readFully(out, actual, length - checked);
+        }
+        return expected.equals(actual);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private boolean sameFileStore(Path a, Path b) {
+        try {
+            return Files.getFileStore(a).equals(Files.getFileStore(b));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Semaphore slotsFor(Path directory) throws IOException {
+        return deviceSlots.computeIfAbsent(Files.getFileStore(directory), store -> new Semaphore(perDeviceLimit));
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    public double getBytesPerSecond() {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        return seconds <= 0 ? 0 : bytesTransferred.get() / seconds;
+    }
+}
@@ -0,0 +1,254 @@
+package com.studymate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Picks a file's category from its first bytes, falling back to the extension. The magic
+// numbers are compiled into a byte trie, so a header is classified in one walk however
+// many signatures there are; "??" in a signature matches any byte. A definitive signature
+// (e.g. %PDF-) wins over the extension, so misnamed and extensionless files land in the
+// right category; an ambiguous one (a ZIP, which may be a .docx or a .zip) only decides
+// when the extension does not. Headers are read into a small per-thread direct buffer,
+// and results are cached by file key, size and modification time.
+class TypeDetector {
+    static final int HEADER_BYTES = 16;
+
+    private static final int CACHE_SIZE = 100_000;
+    private static final TypeDetector STANDARD = new Builder()
+        .definitive("25 50 44 46 2D", Category.PDF)                          // %PDF-
+        .definitive("89 50 4E 47 0D 0A 1A 0A", Category.IMAGES)              // PNG
+        .definitive("FF D8 FF", Category.IMAGES)                             // JPEG
+        .definitive("47 49 46 38 37 61", Category.IMAGES)                    // GIF87a
+        .definitive("47 49 46 38 39 61", Category.IMAGES)                    // GIF89a
+        .definitive("49 49 2A 00", Category.IMAGES)                          // TIFF, little endian
+        .definitive("4D 4D 00 2A", Category.IMAGES)                          // TIFF, big endian
+        .definitive("52 49 46 46 ?? ?? ?? ?? 57 45 42 50", Category.IMAGES)  // RIFF....WEBP
+        .definitive("?? ?? ?? ?? 66 74 79 70 68 65 69 63", Category.IMAGES)  // ftypheic
+        .definitive("?? ?? ?? ?? 66 74 79 70 6D 69 66 31", Category.IMAGES)  // ftypmif1: HEIF
+        .definitive("7B 5C 72 74 66", Category.DOCUMENTS)                    // {\rtf
+        .definitive("?? ?? ?? ?? 66 74 79 70 69 73 6F 6D", Category.VIDEOS)  // ftypisom: MP4
+        .definitive("?? ?? ?? ?? 66 74 79 70 6D 70 34 31", Category.VIDEOS)  // ftypmp41: MP4
+        .definitive("?? ?? ?? ?? 66 74 79 70 6D 70 34 32", Category.VIDEOS)  // ftypmp42: MP4
+        .definitive("?? ?? ?? ?? 66 74 79 70 61 76 63 31", Category.VIDEOS)  // ftypavc1: MP4
+        .definitive("?? ?? ?? ?? 66 74 79 70 71 74 20 20", Category.VIDEOS)  // ftypqt  : MOV
+        .definitive("?? ?? ?? ?? 66 74 79 70 4D 34 56 20", Category.VIDEOS)  // ftypM4V : M4V
+        .definitive("?? ?? ?? ?? 66 74 79 70 33 67 70", Category.VIDEOS)     // ftyp3gp: 3GP
+        .definitive("1A 45 DF A3", Category.VIDEOS)                          // Matroska: MKV, WebM
+        .definitive("52 49 46 46 ?? ?? ?? ?? 41 56 49 20", Category.VIDEOS)  // RIFF....AVI
+        .definitive("30 26 B2 75 8E 66 CF 11", Category.VIDEOS)              // ASF: WMV
+        .definitive("46 4C 56 01", Category.VIDEOS)                          // FLV
+        .definitive("00 00 01 BA", Category.VIDEOS)                          // MPEG program stream
+        .ambiguous("50 4B 03 04", Category.OTHERS)                           // ZIP, DOCX, PPTX, XLSX
+        .ambiguous("D0 CF 11 E0 A1 B1 1A E1", Category.DOCUMENTS)            // OLE2: DOC, XLS, PPT
+        .ambiguous("42 4D ?? ?? ?? ?? 00 00 00 00", Category.IMAGES)         // BM, size, reserved
+        .build();
+
+    private static final ThreadLocal<ByteBuffer> HEADER = ThreadLocal.withInitial(
+        () -> ByteBuffer.allocateDirect(HEADER_BYTES));
+
+    // Trie nodes: child index per byte value (0 = none), plus a wildcard child
+    private final int[][] children;
+    private final int[] wildcard;
+    private final Signature[] matches;
+    private final Map<String, Category> cache = new LinkedHashMap<String, Category>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Category> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private TypeDetector(int[][] children, int[] wildcard, Signature[] matches) {
+        this.children = children;
+        this.wildcard = wildcard;
+        this.matches = matches;
+    }
+
+    // The built-in signatures; shared, so its cache is too
+    static TypeDetector standard() {
+        return STANDARD;
+    }
+
+    public Category detect(Path file) {
+        try {
+            return detect(file, Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return Category.forFileName(file.getFileName().toString());
+        }
+    }
+
+    // attrs are the file's attributes, already read by the caller (e.g. a directory walk)
+    public Category detect(Path file, BasicFileAttributes attrs) {
+        String name = file.getFileName().toString();
+        Object fileKey = attrs.fileKey();
+        String cacheKey = fileKey != null
+            ? fileKey.toString() + '\0' + attrs.size() + '\0' + attrs.lastModifiedTime().toMillis()
+            : null;
+        if (cacheKey != null) {
+            synchronized (cache) {
+                Category cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
+        Category category = classify(name, attrs.size() > 0 ? readHeader(file) : null);
+        if (cacheKey != null) {
+            synchronized (cache) {
+                cache.put(cacheKey, category);
+            }
+        }
+        return category;
+    }
+
+    // header holds the first bytes of the file between position and limit, or is null
+    Category classify(String name, ByteBuffer header) {
+        Category byExtension = Category.forFileName(name);
+        Signature signature = header != null ? match(header) : null;
+        if (signature != null && (signature.definitive || byExtension == Category.OTHERS)) {
+            return signature.category;
+        }
+        if (byExtension == Category.OTHERS && signature == null && header != null
+                && name.lastIndexOf('.') <= 0 && isText(header)) {
+            // An extensionless text file, e.g. lecture notes saved as "README"
+            return Category.DOCUMENTS;
+        }
+        return byExtension;
+    }
+
+    // The longest signature matching the header, or null
+    private Signature match(ByteBuffer header) {
+        return match(header, header.position(), 0, null);
+    }
+
+    private Signature match(ByteBuffer header, int offset, int node, Signature best) {
+        if (matches[node] != null && (best == null || matches[node].length > best.length)) {
+            best = matches[node];
+        }
+        if (offset == header.limit()) {
+            return best;
+        }
+        int exact = children[node] != null ? children[node][header.get(offset) & 0xFF] : 0;
+        if (exact != 0) {
+            best = match(header, offset + 1, exact, best);
+        }
+        if (wildcard[node] != 0) {
+            best = match(header, offset + 1, wildcard[node], best);
+        }
+        return best;
+    }
+
+    // No NUL bytes and no control characters other than whitespace
+    private static boolean isText(ByteBuffer header) {
+        for (int i = header.position(); i < header.limit(); i++) {
+            int b = header.get(i) & 0xFF;
+            if (b < 0x20 && b != '\n' && b != '\r' && b != '\t' && b != '\f') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The first HEADER_BYTES bytes (fewer for a shorter file), or null if unreadable.
+    // The buffer is this thread's and is reused by its next call.
+    private static ByteBuffer readHeader(Path file) {
+        ByteBuffer header = HEADER.get();
+        header.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // a single read normally fills it
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        header.flip();
+        return header;
+    }
+
+    private static final class Signature {
+        final Category category;
+        final boolean definitive;
+        final int length;
+
+        Signature(Category category, boolean definitive, int length) {
+            this.category = category;
+            this.definitive = definitive;
+            this.length = length;
+        }
+    }
+
+    // Signatures are hex bytes separated by spaces, matched at the start of the file
+    static final class Builder {
+        private final List<int[]> children = new ArrayList<>();
+        private final List<Integer> wildcard = new ArrayList<>();
+        private final List<Signature> matches = new ArrayList<>();
+
+        Builder() {
+            addNode();
+        }
+
+        // Decides the category whatever the extension says
+        Builder definitive(String signature, Category category) {
+            return add(signature, category, true);
+        }
+
+        // Decides the category only when the extension is unknown
+        Builder ambiguous(String signature, Category category) {
+            return add(signature, category, false);
+        }
+
+        private Builder add(String signature, Category category, boolean definitive) {
+            String[] bytes = signature.trim().split("\\s+");
+            if (bytes.length > HEADER_BYTES) {
+                throw new IllegalArgumentException("Signature longer than " + HEADER_BYTES + " bytes: " + signature);
+            }
+            int node = 0;
+            for (String b : bytes) {
+                if (b.equals("??")) {
+                    if (wildcard.get(node) == 0) {
+                        wildcard.set(node, addNode());
+                    }
+                    node = wildcard.get(node);
+                } else {
+                    int value = Integer.parseInt(b, 16);
+                    int[] next = children.get(node);
+                    if (next == null) {
+                        next = new int[256];
+                        children.set(node, next);
+                    }
+                    if (next[value] == 0) {
+                        next[value] = addNode();
+                    }
+                    node = next[value];
+                }
+            }
+            matches.set(node, new Signature(category, definitive, bytes.length));
+            return this;
+        }
+
+        private int addNode() {
+            children.add(null);
+            wildcard.add(0);
+            matches.add(null);
+            return children.size() - 1;
+        }
+
+        TypeDetector build() {
+            int[] wildcards = new int[wildcard.size()];
+            for (int i = 0; i < wildcards.length; i++) {
+                wildcards[i] = wildcard.get(i);
+            }
+            return new TypeDetector(children.toArray(new int[0][]), wildcards,
+                matches.toArray(new Signature[0]));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.studymate;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.*;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ProgressIndicator;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Runs the app's disk work (imports, organize, opening and deleting files) off the FX
+// thread as tasks shown in the TaskPanel. A task keeps going past a failed item and
+// collects the failures into one report instead of stopping on a modal alert. Workers
+// never touch the scene graph directly: their UI updates go through runOnUi(), which
+// applies everything queued since the last pulse in a single Platform.runLater, and
+// progress is published as latest-value-wins, so a fast task cannot flood the FX thread.
+class UiTaskExecutor {
+    private static final int WORKERS = 4;
+    // Tasks that finish sooner than this never appear, unless something failed
+    private static final Duration SHOW_DELAY = Duration.millis(300);
+    // How long a successful task stays in the panel after finishing
+    private static final Duration LINGER = Duration.seconds(4);
+
+    enum State { RUNNING, DONE, CANCELLED, FAILED }
+
+    interface Work {
+        void run(Task task) throws Exception;
+    }
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+        Thread thread = new Thread(r, "ui-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Queue<Runnable> updates = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Only touched on the FX thread
+    private final ObservableList<Task> visibleTasks = FXCollections.observableArrayList();
+
+    // The tasks to show, oldest first; FX thread only
+    public ObservableList<Task> getVisibleTasks() {
+        return visibleTasks;
+    }
+
+    // Queues a UI mutation from any thread. Updates run on the FX thread in the order
+    // they were queued, batched into one runLater per pulse.
+    public void runOnUi(Runnable update) {
+        updates.add(update);
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        Runnable update;
+        while ((update = updates.poll()) != null) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                Metrics.global().error("ui", String.valueOf(e));
+            }
+        }
+    }
+
+    // Runs work on the task workers
+    public Task submit(String title, Work work) {
+        return submit(title, workers, work);
+    }
+
+    // Runs work on the given executor, e.g. the single library thread that owns the catalog
+    public Task submit(String title, Executor executor, Work work) {
+        Task task = begin(title, null);
+        executor.execute(() -> {
+            try {
+                work.run(task);
+                task.finish(null);
+            } catch (Exception e) {
+                task.finish(e);
+            }
+        });
+        return task;
+    }
+
+    // A task whose work runs elsewhere (e.g. an ImportEngine import); the caller reports
+    // its progress and failures and calls finish(). onCancel, if not null, is offered as
+    // a cancel button and runs on the FX thread.
+    public Task begin(String title, Runnable onCancel) {
+        Task task = new Task(title, onCancel);
+        runOnUi(() -> {
+            PauseTransition delay = new PauseTransition(SHOW_DELAY);
+            delay.setOnFinished(e -> {
+                if (task.state.get() == State.RUNNING) {
+                    visibleTasks.add(task);
+                }
+            });
+            delay.play();
+        });
+        return task;
+    }
+
+    // A failure of background work that has no task of its own (e.g. saving the catalog)
+    public void report(String title, Exception error) {
+        begin(title, null).finish(error);
+    }
+
+    // Removes a finished task from the panel
+    public void dismiss(Task task) {
+        visibleTasks.remove(task);
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    static final class Failure {
+        final String item;
+        final String message;
+
+        Failure(String item, String message) {
+            this.item = item;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return item + ": " + message;
+        }
+    }
+
+    // Thread-safe handle for one task. The properties are for the panel and only change
+    // on the FX thread.
+    final class Task {
+        private final String title;
+        private final Runnable onCancel;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicBoolean publishQueued = new AtomicBoolean();
+        private volatile String status = "";
+        private volatile double fraction = ProgressIndicator.INDETERMINATE_PROGRESS;
+        // FX thread only
+        private Runnable action;
+
+        final StringProperty statusText = new SimpleStringProperty("");
+        final DoubleProperty progress = new SimpleDoubleProperty(ProgressIndicator.INDETERMINATE_PROGRESS);
+        final IntegerProperty failureCount = new SimpleIntegerProperty();
+        final ObjectProperty<State> state = new SimpleObjectProperty<>(State.RUNNING);
+        // Label of the follow-up offered with offer(), or empty
+        final StringProperty actionLabel = new SimpleStringProperty("");
+
+        private Task(String title, Runnable onCancel) {
+            this.title = title;
+            this.onCancel = onCancel;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public boolean isCancellable() {
+            return onCancel != null;
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        // FX thread
+        public void cancel() {
+            if (onCancel != null && state.get() == State.RUNNING && cancelled.compareAndSet(false, true)) {
+                status = "Cancelling...";
+                onCancel.run();
+                publish();
+            }
+        }
+
+        // completed of total items done; total 0 shows an indeterminate bar
+        public void progress(int completed, int total, String status) {
+            this.fraction = total > 0 ? (double) completed / total : ProgressIndicator.INDETERMINATE_PROGRESS;
+            this.status = status;
+            publish();
+        }
+
+        public void status(String status) {
+            this.status = status;
+            publish();
+        }
+
+        // Records a failed item; the task carries on with the rest
+        public void failed(String item, Exception error) {
+            failed(item, String.valueOf(error.getMessage()));
+        }
+
+        public void failed(String item, String message) {
+            failures.add(new Failure(item, message));
+            Metrics.global().error("task", title + " - " + item + ": " + message);
+            publish();
+        }
+
+        public List<Failure> getFailures() {
+            synchronized (failures) {
+                return new ArrayList<>(failures);
+            }
+        }
+
+        // Offers a follow-up (e.g. retrying what failed) as a button shown once the task
+        // has ended; the action runs on the FX thread and dismisses the task
+        public void offer(String label, Runnable action) {
+            runOnUi(() -> {
+                this.action = action;
+                actionLabel.set(label);
+            });
+        }
+
+        // FX thread
+        void runAction() {
+            if (action != null) {
+                dismiss(this);
+                action.run();
+            }
+        }
+
+        // Queues a UI mutation (see UiTaskExecutor.runOnUi())
+        public void ui(Runnable update) {
+            runOnUi(update);
+        }
+
+        // Ends the task; error is what stopped it, or null if it ran to the end
+        public void finish(Exception error) {
+            if (error != null) {
+                failures.add(new Failure(title, String.valueOf(error.getMessage())));
+                Metrics.global().error("task", title + ": " + error.getMessage());
+            }
+            State end = error != null ? State.FAILED : cancelled.get() ? State.CANCELLED : State.DONE;
+            if (end == State.DONE) {
+                fraction = 1.0;
+            }
+            Metrics.global().counter("tasks." + end.name().toLowerCase()).increment();
+            runOnUi(() -> {
+                apply();
+                state.set(end);
+                if (failureCount.get() > 0 && !visibleTasks.contains(this)) {
+                    visibleTasks.add(this);
+                } else if (failureCount.get() == 0) {
+                    PauseTransition linger = new PauseTransition(LINGER);
+                    linger.setOnFinished(e -> visibleTasks.remove(this));
+                    linger.play();
+                }
+            });
+        }
+
+        // At most one pending UI update per task; it applies the latest values
+        private void publish() {
+            if (publishQueued.compareAndSet(false, true)) {
+                runOnUi(this::apply);
+            }
+        }
+
+        private void apply() {
+            publishQueued.set(false);
+            statusText.set(status);
+            progress.set(fraction);
+            failureCount.set(failures.size());
+        }
+    }
+}